@@ -1,11 +1,11 @@
 package io.kestra.plugin.singer;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.AbstractMetricEntry;
 import io.kestra.core.models.executions.metrics.Counter;
 import io.kestra.core.models.executions.metrics.Timer;
 import io.kestra.core.models.property.Property;
@@ -16,31 +16,50 @@ import io.kestra.core.models.tasks.runners.TaskRunner;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.serializers.JacksonMapper;
 import io.kestra.core.storages.StorageContext;
+import io.kestra.core.utils.IdUtils;
 import io.kestra.plugin.core.runner.Process;
 import io.kestra.plugin.scripts.exec.scripts.models.DockerOptions;
 import io.kestra.plugin.scripts.exec.scripts.runners.CommandsWrapper;
 import io.kestra.plugin.scripts.runner.docker.Docker;
-import io.kestra.plugin.singer.models.Metric;
+import io.kestra.plugin.singer.models.Compression;
+import io.kestra.plugin.singer.models.Installer;
+import io.kestra.plugin.singer.services.LogParser;
+import io.kestra.plugin.singer.services.MessageBuffer;
+import io.kestra.plugin.singer.services.MetricAggregator;
+import io.kestra.plugin.singer.services.StateService;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.slf4j.Logger;
+import org.apache.commons.lang3.tuple.Pair;
+import reactor.core.publisher.Flux;
 
 import jakarta.validation.constraints.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static io.kestra.core.utils.Rethrow.throwConsumer;
+
 @SuperBuilder
 @ToString
 @EqualsAndHashCode
@@ -52,18 +71,26 @@ public abstract class AbstractPythonSinger extends Task {
     protected static final TypeReference<Map<String, Object>> TYPE_REFERENCE = new TypeReference<>() {
     };
     private static final String DEFAULT_IMAGE = "python:3.10.12";
+    protected static final String IMAGE_ENVIRONMENT_DIRECTORY = "/opt/singer";
 
     @Builder.Default
     @Getter(AccessLevel.NONE)
-    protected transient List<Metric> metrics = new ArrayList<>();
+    protected transient MetricAggregator metrics = new MetricAggregator();
 
     @Builder.Default
     @Getter(AccessLevel.NONE)
     protected transient Map<String, Object> stateRecords = new HashMap<>();
 
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    protected transient Map<String, Duration> phases = new ConcurrentHashMap<>();
+
     @Getter(AccessLevel.NONE)
     protected transient Path workingDirectory;
 
+    @Getter(AccessLevel.NONE)
+    protected transient String workingSubDirectory;
+
     @Schema(deprecated = true,
         title = "The name of Singer state file stored in KV Store."
     )
@@ -71,6 +98,13 @@ public abstract class AbstractPythonSinger extends Task {
     @Builder.Default
     protected Property<String> stateName = Property.ofValue("singer-state");
 
+    @Schema(deprecated = true,
+        title = "The compression of the state saved in KV Store.",
+        description = "States are read whatever their compression, so it can be changed at any time."
+    )
+    @Builder.Default
+    protected Property<Compression> stateCompression = Property.ofValue(Compression.NONE);
+
     @Schema(deprecated = true,
         title = "Override default pip packages to use a specific version."
     )
@@ -100,6 +134,66 @@ public abstract class AbstractPythonSinger extends Task {
     @Builder.Default
     private Property<String> containerImage = Property.ofValue(DEFAULT_IMAGE);
 
+    @Schema(deprecated = true,
+        title = "The maximum size in bytes of the connector messages kept in memory.",
+        description = "When Kestra processes the connector messages slower than they are produced, the messages over this " +
+            "size are spilled to a local file until Kestra catches up, instead of growing the heap."
+    )
+    @NotNull
+    @Builder.Default
+    private Property<Long> bufferMemory = Property.ofValue(64L * 1024 * 1024);
+
+    @Schema(deprecated = true,
+        title = "A worker directory used to cache the installed Python environments.",
+        description = "When set, the pip packages are installed once in a sub directory named after the hash of the " +
+            "package list, of the installer and of the container image, and later runs reuse it instead of running pip again. " +
+            "With the Docker task runner, the directory is mounted in the container at the same path, which requires " +
+            "volumes to be enabled on the worker."
+    )
+    private Property<String> environmentCacheDirectory;
+
+    @Schema(deprecated = true,
+        title = "The installer used to resolve the pip packages.",
+        description = "All packages are resolved in a single call, `UV` installs `uv` first and uses it instead of pip. " +
+            "With a `wheelhouse`, `uv` is installed from it, so the wheelhouse must contain a `uv` wheel, otherwise the " +
+            "packages are installed with pip and a warning is logged."
+    )
+    @NotNull
+    @Builder.Default
+    private Property<Installer> installer = Property.ofValue(Installer.PIP);
+
+    @Schema(deprecated = true,
+        title = "A worker directory used as the pip and uv download cache.",
+        description = "The wheels downloaded are kept across runs. With the Docker task runner, the directory is mounted " +
+            "in the container at the same path, which requires volumes to be enabled on the worker."
+    )
+    private Property<String> packageCacheDirectory;
+
+    @Schema(deprecated = true,
+        title = "A worker directory containing the wheels of the pip packages, used to install without any network access.",
+        description = "The packages are only resolved from this directory (`--no-index --find-links`) and pip itself is " +
+            "not upgraded. With the `UV` installer, it must also contain a `uv` wheel. With the Docker task runner, the " +
+            "directory is mounted in the container at the same path, which requires volumes to be enabled on the worker."
+    )
+    private Property<String> wheelhouse;
+
+    @Schema(deprecated = true,
+        title = "The repository of the connector images built by the `BuildImage` task.",
+        description = "When set with the Docker task runner, the image `<imageRepository>:<hash>` built for this connector " +
+            "is used instead of `containerImage`, and no pip package is installed at runtime. The hash is computed from " +
+            "the pip packages, the `installer` and the `containerImage`, so the connector must be declared the same way in both tasks."
+    )
+    private Property<String> imageRepository;
+
+    @Schema(deprecated = true,
+        title = "The interval between two publications of the connector metrics while it is running.",
+        description = "The metrics emitted since the previous publication are published, so that a long sync can be " +
+            "followed while it runs, and its metrics are kept if it fails."
+    )
+    @NotNull
+    @Builder.Default
+    private Property<Duration> metricsInterval = Property.ofValue(Duration.ofSeconds(30));
+
     protected DockerOptions injectDefaults(DockerOptions original) {
         if (original == null) {
             return null;
@@ -119,69 +213,361 @@ public abstract class AbstractPythonSinger extends Task {
 
     protected abstract Property<String> command();
 
+    /**
+     * The role of the connector, {@code tap} or {@code target}, tagging the metrics that both would publish under the
+     * same name in a pipeline.
+     */
+    protected abstract String role();
+
     protected String finalCommand(RunContext runContext) throws IllegalVariableEvaluationException {
         return this.command != null ?
             runContext.render(this.command).as(String.class).orElseThrow() :
             runContext.render(this.command()).as(String.class).orElse(null);
     }
 
+    protected void initWorkingDirectory(RunContext runContext) throws IOException {
+        workingDirectory = this.workingSubDirectory != null ?
+            runContext.workingDir().path().resolve(this.workingSubDirectory) :
+            runContext.workingDir().path();
+        Files.createDirectories(workingDirectory);
+    }
+
     protected void run(RunContext runContext, String command, AbstractLogConsumer logConsumer) throws Exception {
         CommandsWrapper commandsWrapper = new CommandsWrapper(runContext);
-        workingDirectory = commandsWrapper.getWorkingDirectory();
+        this.initWorkingDirectory(runContext);
 
         configSetupCommands(runContext);
 
+        Optional<String> image = this.image(runContext);
+        DockerOptions docker = this.mountVolumes(runContext, this.getDocker());
         var taskRunner = switch (this.taskRunner) {
-            case Docker ignored -> Docker.from(this.getDocker());
+            case Docker ignored -> Docker.from(docker);
             case Process ignored -> Process.instance();
             default -> throw new IllegalStateException("Unexpected value: " + this.taskRunner);
         };
 
-        commandsWrapper
+        commandsWrapper = commandsWrapper
             .withWarningOnStdErr(true)
-            .withDockerOptions(this.injectDefaults(getDocker()))
+            .withDockerOptions(this.injectDefaults(docker))
             .withTaskRunner(taskRunner)
-            .withContainerImage(runContext.render(this.containerImage).as(String.class).orElseThrow())
+            .withContainerImage(image.isPresent() ? image.get() : runContext.render(this.containerImage).as(String.class).orElseThrow())
             .withLogConsumer(logConsumer)
             .withInterpreter(Property.ofValue(List.of("/bin/sh", "-c")))
             .withBeforeCommands(Property.ofValue(Stream.of(
-                    pipInstallCommands(runContext),
-                    logSetupCommands()
+                    this.workingSubDirectory != null ? Stream.of("cd " + this.workingSubDirectory) : Stream.<String>empty(),
+                    image.isPresent() ? Stream.<String>empty() : this.timedCommands("pip", pipInstallCommands(runContext)),
+                    logSetupCommands(runContext)
                 ).flatMap(Function.identity()).toList()))
             .withCommands(Property.ofValue(List.of(command)))
-            .withEnv(this.environmentVariables(runContext))
-            .run();
+            .withEnv(this.environmentVariables(runContext));
+
+        // metrics are published periodically while the connector runs, and whatever happens once it has ended
+        Duration metricsInterval = runContext.render(this.metricsInterval).as(Duration.class).orElseThrow();
+        ScheduledExecutorService metricsPublisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "singer-metrics-" + this.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsPublisher.scheduleAtFixedRate(
+            () -> {
+                try {
+                    this.saveSingerMetrics(runContext);
+                } catch (Exception e) {
+                    runContext.logger().warn("Unable to publish the connector metrics", e);
+                }
+            },
+            metricsInterval.toMillis(),
+            metricsInterval.toMillis(),
+            TimeUnit.MILLISECONDS
+        );
+
+        try {
+            commandsWrapper.run();
+        } finally {
+            metricsPublisher.shutdownNow();
+            this.saveSingerMetrics(runContext);
+        }
     }
 
-    protected Stream<String> pipInstallCommands(RunContext runContext) throws Exception {
+    /**
+     * Run the command in the background and emit its stdout messages at the pace of the subscriber: messages not
+     * consumed yet are kept in a memory buffer bounded by {@code bufferMemory} and spilled to local disk over it.
+     * The command is killed if the subscriber is cancelled or fails before the end of the messages.
+     */
+    protected Flux<String> runMessages(RunContext runContext, String command) throws IllegalVariableEvaluationException {
+        return this.runMessages(runContext, command, true);
+    }
+
+    /**
+     * @param spill false to block the command instead of spilling, so that the backpressure of the subscriber
+     *              reaches it
+     */
+    protected Flux<String> runMessages(RunContext runContext, String command, boolean spill) throws IllegalVariableEvaluationException {
+        long bufferMemory = runContext.render(this.bufferMemory).as(Long.class).orElseThrow();
+
+        return Flux.using(
+            () -> {
+                MessageBuffer buffer = new MessageBuffer(bufferMemory, spill ? runContext.workingDir().path() : null);
+
+                Thread thread = new Thread(
+                    () -> {
+                        try {
+                            this.run(runContext, command, new SingerLogDispatcher(runContext, metrics, throwConsumer(line -> {
+                                String message = line.stripTrailing();
+
+                                if (!message.isEmpty()) {
+                                    buffer.put(message);
+                                }
+                            })));
+
+                            buffer.complete();
+                        } catch (Exception e) {
+                            buffer.fail(e);
+                        }
+                    },
+                    "singer-" + this.getId()
+                );
+                thread.setDaemon(true);
+                thread.start();
+
+                return Pair.of(buffer, thread);
+            },
+            resource -> Flux.<String>generate(sink -> {
+                try {
+                    String message = resource.getLeft().take();
+
+                    if (message == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(message);
+                    }
+                } catch (Exception e) {
+                    sink.error(e);
+                }
+            }),
+            throwConsumer(resource -> {
+                MessageBuffer buffer = resource.getLeft();
+                Thread thread = resource.getRight();
+
+                // the runner kills the process when its thread is interrupted, and a blocked writer is released
+                buffer.cancel();
+                if (thread.isAlive()) {
+                    thread.interrupt();
+
+                    try {
+                        thread.join(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                buffer.close();
+
+                this.metric(runContext, Counter.of("buffer.spill.count", buffer.getSpilledCount()));
+                this.metric(runContext, Counter.of("buffer.spill.bytes", buffer.getSpilledBytes()));
+            })
+        );
+    }
+
+    protected List<String> requirements(RunContext runContext) throws IllegalVariableEvaluationException {
         ArrayList<String> finalRequirements = new ArrayList<>(
-            this.pipPackages != null ?
+            (this.pipPackages != null ?
                 runContext.render(this.pipPackages).asList(String.class) :
                 runContext.render(this.pipPackages()).asList(String.class)
+            )
+                .stream()
+                .map(String::trim)
+                .toList()
         );
         finalRequirements.add("python-json-logger");
 
+        return finalRequirements;
+    }
+
+    /**
+     * A hash of the pip packages, of the installer and of the container image, identifying the installed environment.
+     */
+    protected String environmentKey(RunContext runContext) throws IllegalVariableEvaluationException {
+        String key = String.join("\n", this.requirements(runContext)) + "\n" +
+            runContext.render(this.installer).as(Installer.class).orElseThrow() + "\n" +
+            runContext.render(this.containerImage).as(String.class).orElse("");
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The pre-built image of this connector, if any.
+     */
+    protected Optional<String> image(RunContext runContext) throws IllegalVariableEvaluationException {
+        Optional<String> repository = runContext.render(this.imageRepository).as(String.class);
+
+        if (repository.isEmpty() || !(this.taskRunner instanceof Docker)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(repository.get() + ":" + this.environmentKey(runContext));
+    }
+
+    /**
+     * The directory where the pip packages are installed, the working directory, a cached environment or the one of
+     * the pre-built image.
+     */
+    protected String environmentDirectory(RunContext runContext) throws IllegalVariableEvaluationException {
+        if (this.image(runContext).isPresent()) {
+            return IMAGE_ENVIRONMENT_DIRECTORY;
+        }
+
+        Optional<String> cacheDirectory = runContext.render(this.environmentCacheDirectory).as(String.class);
+
+        if (cacheDirectory.isEmpty()) {
+            return ".";
+        }
+
+        return Path.of(cacheDirectory.get()).toAbsolutePath().resolve(this.environmentKey(runContext)).toString();
+    }
+
+    protected String executable(RunContext runContext, String command) throws IllegalVariableEvaluationException {
+        return this.environmentDirectory(runContext) + "/bin/" + command;
+    }
+
+    protected Stream<String> pipInstallCommands(RunContext runContext) throws Exception {
+        String directory = this.environmentDirectory(runContext);
+
+        if (directory.equals(".")) {
+            return Stream.of(
+                Stream.of("set -o errexit"),
+                this.installCommands(runContext, "."),
+                Stream.of("chmod -R 755 bin"),
+                loggingConfCommands("logging.conf", ".")
+            ).flatMap(Function.identity());
+        }
+
+        // install in a temporary directory unique to this run, renamed at the end so that a partial install is never
+        // reused; the rename fails without any change if a concurrent run has already renamed its own
+        Files.createDirectories(Path.of(directory).getParent());
+        String temporary = directory + "." + IdUtils.create();
+
         return Stream.of(
             Stream.of(
                 "set -o errexit",
-                "pip install pip --upgrade > /dev/null"
+                "if [ ! -d " + directory + " ]; then",
+                "trap 'rm -rf " + temporary + "' EXIT"
             ),
-            finalRequirements.stream().map("pip install --target . %s > /dev/null"::formatted),
-            Stream.of("chmod -R 755 bin")
+            this.installCommands(runContext, temporary),
+            loggingConfCommands("logging.conf", temporary),
+            Stream.of(
+                "chmod -R 755 " + temporary + "/bin",
+                "python -c 'import os, sys; os.rename(sys.argv[1], sys.argv[2])' " + temporary + " " + directory + " 2> /dev/null || true",
+                "rm -rf " + temporary,
+                "fi"
+            )
         ).flatMap(Function.identity());
     }
 
+    protected Stream<String> installCommands(RunContext runContext, String target) throws IllegalVariableEvaluationException {
+        return this.installCommands(
+            runContext,
+            target,
+            runContext.render(this.wheelhouse).as(String.class).map(path -> Path.of(path).toAbsolutePath().toString())
+        );
+    }
+
+    /**
+     * @param wheelhouse the path of the wheelhouse where the commands run
+     */
+    protected Stream<String> installCommands(RunContext runContext, String target, Optional<String> wheelhouse) throws IllegalVariableEvaluationException {
+        Installer installer = runContext.render(this.installer).as(Installer.class).orElseThrow();
 
-    protected Stream<String> logSetupCommands() throws Exception {
-        String template = IOUtils.toString(
-            Objects.requireNonNull(this.getClass().getClassLoader().getResourceAsStream("singer/logging.conf")),
+        // uv can only be installed offline from the wheelhouse
+        if (installer == Installer.UV && wheelhouse.isPresent() && !this.hasUvWheel(runContext)) {
+            runContext.logger().warn("No uv wheel found in the wheelhouse, the pip packages are installed with pip");
+            installer = Installer.PIP;
+        }
+
+        String index = wheelhouse.map(path -> " --no-index --find-links " + path).orElse("");
+        String requirements = this.requirements(runContext)
+            .stream()
+            .map(requirement -> "'" + requirement.replace("'", "'\\''") + "'")
+            .collect(Collectors.joining(" "));
+
+        List<String> commands = new ArrayList<>();
+        if (installer == Installer.UV) {
+            commands.add("pip install" + index + " uv > /dev/null");
+            commands.add("python -m uv pip install --target " + target + index + " " + requirements + " > /dev/null");
+        } else {
+            if (wheelhouse.isEmpty()) {
+                commands.add("pip install pip --upgrade > /dev/null");
+            }
+            commands.add("pip install --target " + target + index + " " + requirements + " > /dev/null");
+        }
+
+        return commands.stream();
+    }
+
+    private boolean hasUvWheel(RunContext runContext) throws IllegalVariableEvaluationException {
+        Optional<String> wheelhouse = runContext.render(this.wheelhouse).as(String.class);
+
+        if (wheelhouse.isEmpty()) {
+            return false;
+        }
+
+        try (DirectoryStream<Path> wheels = Files.newDirectoryStream(Path.of(wheelhouse.get()), "uv-*.whl")) {
+            return wheels.iterator().hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private DockerOptions mountVolumes(RunContext runContext, DockerOptions original) throws IllegalVariableEvaluationException {
+        List<String> paths = new ArrayList<>();
+        for (Property<String> directory : Arrays.asList(this.environmentCacheDirectory, this.packageCacheDirectory, this.wheelhouse)) {
+            runContext.render(directory).as(String.class)
+                .map(path -> Path.of(path).toAbsolutePath().toString())
+                .ifPresent(paths::add);
+        }
+
+        if (paths.isEmpty()) {
+            return original;
+        }
+
+        List<String> volumes = new ArrayList<>(original != null && original.getVolumes() != null ? original.getVolumes() : List.of());
+        paths.forEach(path -> volumes.add(path + ":" + path));
+
+        return (original != null ? original.toBuilder() : DockerOptions.builder())
+            .volumes(volumes)
+            .build();
+    }
+
+    /**
+     * Write the logging configuration of this run, read from {@code LOGGING_CONF_FILE}. The installed environments
+     * are shared by concurrent runs and never modified here, their own copy is made by the install commands.
+     */
+    protected Stream<String> logSetupCommands(RunContext runContext) throws Exception {
+        this.writeSingerFiles("logging.conf", loggingConf());
+
+        return Stream.empty();
+    }
+
+    protected static String loggingConf() throws IOException {
+        return IOUtils.toString(
+            Objects.requireNonNull(AbstractPythonSinger.class.getClassLoader().getResourceAsStream("singer/logging.conf")),
             StandardCharsets.UTF_8
         );
+    }
 
-        this.writeSingerFiles("logging.conf", template);
-
+    /**
+     * Replace the logging configuration of the singer libraries installed in a directory, for the connectors
+     * ignoring {@code LOGGING_CONF_FILE}.
+     */
+    protected static Stream<String> loggingConfCommands(String source, String directory) {
         return Stream.of(
-            "find .  -type f -name logging.conf | grep \"/singer/\" | xargs -r cp logging.conf"
+            "find " + directory + " -type f -name logging.conf | grep \"/singer/\" | xargs -r -n 1 cp " + source
         );
     }
 
@@ -190,12 +576,21 @@ public abstract class AbstractPythonSinger extends Task {
     }
 
     protected Map<String, String> environmentVariables(RunContext runContext) throws IllegalVariableEvaluationException, IOException {
-        return new HashMap<>(Map.of(
+        Map<String, String> env = new HashMap<>(Map.of(
             "PYTHONUNBUFFERED", "true",
             "PIP_ROOT_USER_ACTION", "ignore",
             "LOGGING_CONF_FILE", "logging.conf",
-            "PYTHONPATH", "."
+            "PYTHONPATH", this.environmentDirectory(runContext)
         ));
+
+        Optional<String> packageCacheDirectory = runContext.render(this.packageCacheDirectory).as(String.class)
+            .map(path -> Path.of(path).toAbsolutePath().toString());
+        if (packageCacheDirectory.isPresent()) {
+            env.put("PIP_CACHE_DIR", packageCacheDirectory.get() + "/pip");
+            env.put("UV_CACHE_DIR", packageCacheDirectory.get() + "/uv");
+        }
+
+        return env;
     }
 
     protected void writeSingerFiles(String filename, String content) throws IOException {
@@ -210,52 +605,115 @@ public abstract class AbstractPythonSinger extends Task {
         this.writeSingerFiles(filename, MAPPER.writeValueAsString(map));
     }
 
+    /**
+     * Wrap shell commands so that their duration is logged as a {@code singer.phase.<phase>} timer metric.
+     */
+    private Stream<String> timedCommands(String phase, Stream<String> commands) {
+        return Stream.of(
+            Stream.of("singer_phase_start=$(python -c 'import time; print(time.time())')"),
+            commands,
+            Stream.of("python -c \"import json, sys, time; sys.stderr.write(json.dumps({'levelname': 'DEBUG', 'message': " +
+                "'METRIC: ' + json.dumps({'type': 'timer', 'metric': 'phase_" + phase + "', 'value': time.time() - $singer_phase_start, 'tags': {}})}) + '\\n')\"")
+        ).flatMap(Function.identity());
+    }
+
+    /**
+     * Time a phase of the task, published as a {@code singer.phase.<name>} timer metric tagged with the role of the
+     * connector and added to the outputs.
+     */
+    protected <T> T phase(RunContext runContext, String name, Callable<T> callable) throws Exception {
+        long start = System.nanoTime();
+
+        try {
+            return callable.call();
+        } finally {
+            this.phase(runContext, name, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    protected void phase(RunContext runContext, String name, Duration duration) {
+        this.phases.merge(name, duration, Duration::plus);
+        this.metric(runContext, Timer.of("singer.phase." + name, duration, "role", this.role()));
+    }
+
+    protected Map<String, Duration> phases() {
+        return new TreeMap<>(this.phases);
+    }
+
+    /**
+     * Add a metric to the run context. It is shared by the tap and the target of a pipeline, that run concurrently,
+     * so every metric must go through this method.
+     */
+    protected void metric(RunContext runContext, AbstractMetricEntry<?> metric) {
+        synchronized (runContext) {
+            runContext.metric(metric);
+        }
+    }
+
+    /**
+     * Publish the connector metrics aggregated since the previous call.
+     */
     protected void saveSingerMetrics(RunContext runContext) {
-        this.metrics
-            .forEach(metric -> {
-                synchronized (this) {
-                    String name = "singer." + metric.getMetric().replaceAll("[_-]", ".");
-                    String[] tags = metric
-                        .getTags()
-                        .entrySet()
-                        .stream()
-                        .filter(e -> e.getValue() instanceof String)
-                        .flatMap(e -> Stream.of(
-                            e.getKey().toLowerCase(Locale.ROOT),
-                            ((String) e.getValue()).toLowerCase(Locale.ROOT)
-                        ))
-                        .toArray(String[]::new);
-
-                    switch (metric.getType()) {
-                        case counter -> runContext.metric(Counter.of(name, metric.getValue(), tags));
-                        case timer -> runContext.metric(Timer.of(name,
-                            Duration.ofNanos(Double.valueOf(metric.getValue() * 1e+9).longValue()),
-                            tags
-                        ));
+        for (MetricAggregator.Snapshot snapshot : this.metrics.drain()) {
+            String name = snapshot.series().name();
+            String[] tags = snapshot.series().tagsArray();
+
+            switch (snapshot.series().type()) {
+                case counter -> this.metric(runContext, Counter.of(name, snapshot.sum(), tags));
+                case timer -> {
+                    Duration duration = Duration.ofNanos((long) (snapshot.sum() * 1e+9));
+
+                    // phases timed in the shell commands
+                    if (name.startsWith("singer.phase.")) {
+                        this.phases.merge(name.substring("singer.phase.".length()), duration, Duration::plus);
+
+                        tags = Arrays.copyOf(tags, tags.length + 2);
+                        tags[tags.length - 2] = "role";
+                        tags[tags.length - 1] = this.role();
                     }
+
+                    this.metric(runContext, Timer.of(name, duration, tags));
+
+                    runContext.logger().debug(
+                        "Timer '{}' {}: count {}, min {}s, max {}s, avg {}s",
+                        name,
+                        snapshot.series().tags(),
+                        snapshot.count(),
+                        snapshot.min(),
+                        snapshot.max(),
+                        snapshot.sum() / snapshot.count()
+                    );
                 }
-            });
+            }
+        }
     }
 
     public String saveState(RunContext runContext, String state, Map<String, Object> stateRecords) throws IOException {
+        byte[] bytes = StateService.serialize(
+            MAPPER,
+            stateRecords,
+            runContext.render(this.stateCompression).as(Compression.class).orElse(Compression.NONE)
+        );
+        this.metric(runContext, Counter.of("state.bytes", bytes.length));
+
         return runContext.stateStore().putState(
             state,
             "state.json",
             runContext.storage().getTaskStorageContext().map(StorageContext.Task::getTaskRunValue).orElse(null),
-            MAPPER.writeValueAsBytes(stateRecords)
+            bytes
         );
     }
 
     public void stateMessage(Map<String, Object> stateValue) {
-        this.stateRecords.putAll(stateValue);
+        StateService.merge(this.stateRecords, stateValue);
     }
 
     public static class SingerLogDispatcher extends AbstractLogConsumer {
-        private final SingerLogParser singerLogParser;
+        private final LogParser logParser;
         private SingerLogSync singerLogSync;
 
-        public SingerLogDispatcher(RunContext runContext, List<Metric> metrics, Consumer<String> consumer) {
-            singerLogParser = new SingerLogParser(runContext.logger(), metrics);
+        public SingerLogDispatcher(RunContext runContext, MetricAggregator metrics, Consumer<String> consumer) {
+            logParser = new LogParser(runContext.logger(), metrics::add);
             if (consumer != null) {
                 singerLogSync = new SingerLogSync(consumer);
             }
@@ -264,7 +722,7 @@ public abstract class AbstractPythonSinger extends Task {
         @Override
         public void accept(String line, Boolean isStdErr, Instant instant) {
             if (isStdErr) {
-                singerLogParser.accept(line, isStdErr);
+                logParser.accept(line);
                 return;
             }
 
@@ -276,7 +734,7 @@ public abstract class AbstractPythonSinger extends Task {
         @Override
         public void accept(String line, Boolean isStdErr) {
             if (isStdErr) {
-                singerLogParser.accept(line, isStdErr);
+                logParser.accept(line);
                 return;
             }
 
@@ -303,57 +761,4 @@ public abstract class AbstractPythonSinger extends Task {
             this.consumer.accept(log);
         }
     }
-
-    private static class SingerLogParser extends AbstractLogConsumer {
-        private final Logger logger;
-        private final List<Metric> metrics;
-
-        public SingerLogParser(Logger logger, List<Metric> metrics) {
-            this.logger = logger;
-            this.metrics = metrics;
-        }
-
-        @Override
-        public void accept(String line, Boolean isStdErr, Instant instant) {
-            this.accept(line, isStdErr);
-        }
-
-        @Override
-        public void accept(String line, Boolean isStdErr) {
-            try {
-                @SuppressWarnings("unchecked")
-                Map<String, String> jsonLog = (Map<String, String>) MAPPER.readValue(line, Object.class);
-
-                if (jsonLog.containsKey("message") && jsonLog.get("message") != null && jsonLog.get("message")
-                    .startsWith("METRIC: {")) {
-                    metrics.add(MAPPER.readValue(jsonLog.get("message").substring(8), Metric.class));
-                    return;
-                }
-
-                HashMap<String, String> additional = new HashMap<>(jsonLog);
-                additional.remove("asctime");
-                additional.remove("name");
-                additional.remove("message");
-                additional.remove("levelname");
-
-                String format = "[Date: {}] [Name: {}] {}{}";
-                String[] args = new String[]{
-                    jsonLog.get("asctime"),
-                    jsonLog.get("name"),
-                    jsonLog.get("message") != null ? jsonLog.get("message") + " " : "",
-                    !additional.isEmpty() ? additional.toString() : ""
-                };
-
-                switch (jsonLog.get("levelname")) {
-                    case "DEBUG" -> logger.debug(format, (Object[]) args);
-                    case "INFO" -> logger.info(format, (Object[]) args);
-                    case "WARNING" -> logger.warn(format, (Object[]) args);
-                    default -> logger.error(format, (Object[]) args);
-                }
-            } catch (JsonProcessingException e) {
-                logger.info(line.trim());
-            }
-        }
-    }
-
 }
@@ -0,0 +1,161 @@
+package io.kestra.plugin.singer;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.models.tasks.Task;
+import io.kestra.core.runners.RunContext;
+import io.kestra.plugin.core.runner.Process;
+import io.kestra.plugin.scripts.exec.scripts.runners.CommandsWrapper;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(deprecated = true,
+    title = "Build a container image with the pip packages of Singer connectors already installed.",
+    description = "An image is built with the local Docker daemon for each connector, and tagged with the hash of its pip " +
+        "packages, of its `installer` and of its `containerImage`. Connectors declared the same way, with `imageRepository` " +
+        "set, then use this image and skip the pip install. The `wheelhouse` of a connector is copied into the build " +
+        "context, so that images can be built without any network access. It requires the `docker` CLI on the worker."
+)
+@Plugin(
+    examples = {
+        @Example(
+            code = {
+                "repository: localhost:5000/singer",
+                "push: true",
+                "connectors:",
+                "  - id: mysql",
+                "    type: io.kestra.plugin.singer.taps.PipelinewiseMysql",
+                "  - id: snowflake",
+                "    type: io.kestra.plugin.singer.targets.PipelinewiseSnowflake",
+            }
+        )
+    }
+)
+@Deprecated(forRemoval = true, since="0.24")
+public class BuildImage extends Task implements RunnableTask<BuildImage.Output> {
+    private static final String WHEELHOUSE = "/tmp/wheelhouse";
+    private static final String LOGGING_CONF = "/tmp/logging.conf";
+
+    @Schema(deprecated = true,
+        title = "The Singer taps and targets to build an image for.",
+        description = "Only the properties changing the installed packages (`pipPackages`, `containerImage`, `installer`, " +
+            "`wheelhouse`) are used."
+    )
+    @PluginProperty
+    @NotNull
+    @NotEmpty
+    private List<Task> connectors;
+
+    @Schema(deprecated = true,
+        title = "The repository of the images built."
+    )
+    @NotNull
+    private Property<String> repository;
+
+    @Schema(deprecated = true,
+        title = "Push the images built to their registry."
+    )
+    @NotNull
+    @Builder.Default
+    private Property<Boolean> push = Property.ofValue(false);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        String repository = runContext.render(this.repository).as(String.class).orElseThrow();
+        boolean push = runContext.render(this.push).as(Boolean.class).orElseThrow();
+
+        Map<String, String> images = new HashMap<>();
+        List<String> commands = new ArrayList<>(List.of("set -o errexit"));
+
+        for (Task task : this.connectors) {
+            if (!(task instanceof AbstractPythonSinger connector)) {
+                throw new IllegalArgumentException("Invalid connector '" + task.getType() + "', it must be a Singer tap or target");
+            }
+
+            String image = repository + ":" + connector.environmentKey(runContext);
+            if (images.containsValue(image)) {
+                images.put(task.getId(), image);
+                continue;
+            }
+
+            Path context = runContext.workingDir().path().resolve(task.getId());
+            Files.createDirectories(context);
+
+            // the wheelhouse is a worker directory, copied into the build context to be available in the build
+            Optional<String> wheelhouse = runContext.render(connector.getWheelhouse()).as(String.class);
+            if (wheelhouse.isPresent()) {
+                FileUtils.copyDirectory(new File(wheelhouse.get()), context.resolve("wheelhouse").toFile());
+            }
+
+            FileUtils.writeStringToFile(context.resolve("logging.conf").toFile(), AbstractPythonSinger.loggingConf(), StandardCharsets.UTF_8);
+
+            String install = Stream.concat(
+                    connector.installCommands(runContext, AbstractPythonSinger.IMAGE_ENVIRONMENT_DIRECTORY, wheelhouse.map(path -> WHEELHOUSE)),
+                    AbstractPythonSinger.loggingConfCommands(LOGGING_CONF, AbstractPythonSinger.IMAGE_ENVIRONMENT_DIRECTORY)
+                )
+                .collect(Collectors.joining(" && "));
+
+            FileUtils.writeStringToFile(
+                context.resolve("Dockerfile").toFile(),
+                "FROM " + runContext.render(connector.getContainerImage()).as(String.class).orElseThrow() + "\n" +
+                    "ENV PIP_ROOT_USER_ACTION=ignore\n" +
+                    (wheelhouse.isPresent() ? "COPY wheelhouse " + WHEELHOUSE + "\n" : "") +
+                    "COPY logging.conf " + LOGGING_CONF + "\n" +
+                    "RUN " + install + " && chmod -R 755 " + AbstractPythonSinger.IMAGE_ENVIRONMENT_DIRECTORY + "/bin\n",
+                StandardCharsets.UTF_8
+            );
+
+            commands.add("docker build --tag " + image + " " + task.getId());
+            if (push) {
+                commands.add("docker push " + image);
+            }
+
+            images.put(task.getId(), image);
+        }
+
+        new CommandsWrapper(runContext)
+            .withWarningOnStdErr(false)
+            .withTaskRunner(Process.instance())
+            .withInterpreter(Property.ofValue(List.of("/bin/sh", "-c")))
+            .withCommands(Property.ofValue(List.of(String.join("\n", commands))))
+            .run();
+
+        return Output.builder()
+            .images(images)
+            .build();
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(deprecated = true,
+            title = "The image built by connector",
+            description = "The key corresponds to the id of the connector"
+        )
+        private final Map<String, String> images;
+    }
+}
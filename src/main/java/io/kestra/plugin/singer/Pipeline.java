@@ -0,0 +1,202 @@
+package io.kestra.plugin.singer;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.models.tasks.Task;
+import io.kestra.core.runners.RunContext;
+import io.kestra.plugin.singer.models.StreamStats;
+import io.kestra.plugin.singer.services.MessageBuffer;
+import io.kestra.plugin.singer.services.NamedPipe;
+import io.kestra.plugin.singer.taps.AbstractPythonTap;
+import io.kestra.plugin.singer.targets.AbstractPythonTarget;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.kestra.core.utils.Rethrow.throwConsumer;
+import static io.kestra.core.utils.Rethrow.throwSupplier;
+
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Schema(deprecated = true,
+    title = "Extract data with a Singer tap and load them with a Singer target in a single task.",
+    description = "The tap and the target run concurrently, each one in its own sub directory of the working directory. " +
+        "The tap output is sent to the target through a bounded buffer and a named pipe, without any upload to internal storage, " +
+        "and the tap is blocked while the target falls behind. " +
+        "Every message still goes through Kestra, so stream metrics are captured, and the state saved is the one emitted by the target. " +
+        "The target outputs, like the files generated by a file target, are available in the `target` output. " +
+        "The named pipe is created with `mkfifo`, so the worker must provide it, and the tap and the target must run with the " +
+        "process task runner or with Docker on a Linux worker."
+)
+@Plugin(
+    examples = {
+        @Example(
+            code = {
+                "tap:",
+                "  id: mysql",
+                "  type: io.kestra.plugin.singer.taps.PipelinewiseMysql",
+                "  host: 127.0.0.1",
+                "  username: root",
+                "  password: mysql_passwd",
+                "  port: 63306",
+                "  streamsConfigurations:",
+                "    - stream: Category",
+                "      replicationMethod: INCREMENTAL",
+                "      replicationKeys: categoryId",
+                "      selected: true",
+                "target:",
+                "  id: postgres",
+                "  type: io.kestra.plugin.singer.targets.PipelinewisePostgres",
+                "  host: 127.0.0.1",
+                "  username: postgres",
+                "  password: pg_passwd",
+                "  port: 65432",
+                "  dbName: sync",
+            }
+        )
+    }
+)
+@Deprecated(forRemoval = true, since="0.24")
+public class Pipeline extends Task implements RunnableTask<Pipeline.Output> {
+    @Schema(deprecated = true,
+        title = "The Singer tap task to extract data from."
+    )
+    @PluginProperty
+    @NotNull
+    @Valid
+    private Task tap;
+
+    @Schema(deprecated = true,
+        title = "The Singer target task to load data into.",
+        description = "The `from` property of the target is not needed, the target reads the tap output."
+    )
+    @PluginProperty
+    @NotNull
+    @Valid
+    private Task target;
+
+    @Schema(deprecated = true,
+        title = "The maximum size in bytes of the messages buffered between the tap and the target."
+    )
+    @NotNull
+    @Builder.Default
+    private Property<Long> bufferSize = Property.ofValue(8L * 1024 * 1024);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        if (!(this.tap instanceof AbstractPythonTap tap)) {
+            throw new IllegalArgumentException("Invalid tap '" + this.tap.getType() + "', it must be a Singer tap");
+        }
+
+        if (!(this.target instanceof AbstractPythonTarget target)) {
+            throw new IllegalArgumentException("Invalid target '" + this.target.getType() + "', it must be a Singer target");
+        }
+
+        tap.workingSubDirectory = "tap";
+        target.workingSubDirectory = "target";
+
+        MessageBuffer buffer = new MessageBuffer(runContext.render(this.bufferSize).as(Long.class).orElseThrow());
+
+        try (
+            NamedPipe namedPipe = NamedPipe.create(runContext.workingDir().path().resolve("pipe.jsonl"));
+            ExecutorService executor = Executors.newSingleThreadExecutor()
+        ) {
+            namedPipe.write(buffer);
+
+            // the target can fail or end at any time, the tap must not be blocked on a full buffer
+            CompletableFuture<io.kestra.core.models.tasks.Output> targetRun = CompletableFuture
+                .supplyAsync(throwSupplier(() -> target.run(runContext, namedPipe.getPath())), executor)
+                .whenComplete((output, throwable) -> buffer.cancel());
+
+            AbstractPythonTap.Output tapOutput;
+            try {
+                tapOutput = tap.pipe(runContext, throwConsumer(buffer::put));
+            } catch (Exception e) {
+                buffer.complete();
+
+                // a failed target cancels the buffer and makes the tap fail, its own failure is the one to report
+                try {
+                    targetRun.join();
+                } catch (CompletionException targetException) {
+                    Exception cause = cause(targetException);
+                    cause.addSuppressed(e);
+
+                    throw cause;
+                }
+
+                throw e;
+            }
+
+            buffer.complete();
+
+            io.kestra.core.models.tasks.Output targetOutput;
+            try {
+                targetOutput = targetRun.join();
+            } catch (CompletionException e) {
+                throw cause(e);
+            }
+
+            namedPipe.await();
+
+            Map<String, Duration> phases = new TreeMap<>();
+            tapOutput.getPhases().forEach((phase, duration) -> phases.put("tap." + phase, duration));
+            target.phases().forEach((phase, duration) -> phases.put("target." + phase, duration));
+
+            return Output.builder()
+                .count(tapOutput.getCount())
+                .streams(tapOutput.getStreams())
+                .target(targetOutput)
+                .phases(phases)
+                .build();
+        }
+    }
+
+    private static Exception cause(CompletionException exception) {
+        return exception.getCause() instanceof Exception cause ? cause : exception;
+    }
+
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(deprecated = true,
+            title = "Counter of stream items"
+        )
+        private final Long count;
+
+        @Schema(deprecated = true,
+            title = "Statistics of RECORD messages by stream",
+            description = "The key corresponds to the name of the stream"
+        )
+        @PluginProperty(additionalProperties = StreamStats.class)
+        private final Map<String, StreamStats> streams;
+
+        @Schema(deprecated = true,
+            title = "The outputs of the target task",
+            description = "The key of the state in KV Store, and the URIs of the generated files for the file targets"
+        )
+        private final io.kestra.core.models.tasks.Output target;
+
+        @Schema(deprecated = true,
+            title = "Duration of each phase of the tap and of the target",
+            description = "The tap and the target run concurrently, so their phases overlap"
+        )
+        @PluginProperty(additionalProperties = Duration.class)
+        private final Map<String, Duration> phases;
+    }
+}
@@ -0,0 +1,6 @@
+package io.kestra.plugin.singer.models;
+
+public enum Compression {
+    NONE,
+    GZIP,
+}
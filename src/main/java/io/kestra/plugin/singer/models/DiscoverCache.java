@@ -0,0 +1,12 @@
+package io.kestra.plugin.singer.models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+@Builder
+public class DiscoverCache {
+    Instant discoveredAt;
+}
@@ -17,6 +17,7 @@ public class DiscoverStream {
 
     String stream;
 
+    @With
     Map<String, Object> schema;
 
     @JsonProperty("table_name")
@@ -51,11 +52,20 @@ public class DiscoverStream {
         List<String> breadcrumb = new ArrayList<>();
 
         public String breadcrumb() {
-            ArrayList<String> breadcrumbs = new ArrayList<>(breadcrumb);
+            StringBuilder builder = new StringBuilder();
+
+            for (String s : breadcrumb) {
+                if (s.equals("properties")) {
+                    continue;
+                }
 
-            breadcrumbs.removeIf(s -> s.equals("properties"));
+                if (!builder.isEmpty()) {
+                    builder.append('.');
+                }
+                builder.append(s);
+            }
 
-            return String.join(".", breadcrumbs);
+            return builder.toString();
         }
     }
 }
@@ -0,0 +1,42 @@
+package io.kestra.plugin.singer.models;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+
+@Value
+@Builder
+public class Message {
+    Type type;
+
+    String stream;
+
+    Map<String, Object> value;
+
+    Map<String, Object> schema;
+
+    public enum Type {
+        SCHEMA,
+        RECORD,
+        STATE,
+        ACTIVATE_VERSION,
+        BATCH,
+        UNKNOWN;
+
+        public static Type of(String type) {
+            if (type == null) {
+                return UNKNOWN;
+            }
+
+            return switch (type) {
+                case "SCHEMA" -> SCHEMA;
+                case "RECORD" -> RECORD;
+                case "STATE" -> STATE;
+                case "ACTIVATE_VERSION" -> ACTIVATE_VERSION;
+                case "BATCH" -> BATCH;
+                default -> UNKNOWN;
+            };
+        }
+    }
+}
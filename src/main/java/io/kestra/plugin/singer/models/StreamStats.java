@@ -0,0 +1,12 @@
+package io.kestra.plugin.singer.models;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class StreamStats {
+    Long records;
+
+    Long bytes;
+}
@@ -0,0 +1,249 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.singer.models.DiscoverMetadata;
+import io.kestra.plugin.singer.models.DiscoverStream;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static io.kestra.core.utils.Rethrow.throwConsumer;
+
+/**
+ * Applies the stream selection to a discovered catalog one stream at a time, so that only a single
+ * {@link DiscoverStream} is held in memory whatever the size of the catalog.
+ */
+public class CatalogService {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /**
+     * @return the number of streams written
+     */
+    public static long select(Path discover, Path catalog, SelectedService.Selector selector) throws IOException {
+        return select(discover, catalog, selector, false);
+    }
+
+    /**
+     * @param prune drop the streams and the properties that are not selected
+     * @return the number of streams written
+     */
+    public static long select(Path discover, Path catalog, SelectedService.Selector selector, boolean prune) throws IOException {
+        long count = 0;
+
+        try (
+            JsonParser parser = MAPPER.createParser(discover.toFile());
+            JsonGenerator generator = MAPPER.createGenerator(catalog.toFile(), JsonEncoding.UTF8)
+        ) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid catalog '" + discover.getFileName() + "', expected a json object");
+            }
+
+            generator.writeStartObject();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                if (!field.equals("streams") || token != JsonToken.START_ARRAY) {
+                    generator.writeFieldName(field);
+                    generator.copyCurrentStructure(parser);
+                    continue;
+                }
+
+                generator.writeArrayFieldStart("streams");
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    DiscoverStream discoverStream = selector.select(parser.readValueAs(DiscoverStream.class));
+
+                    if (prune) {
+                        discoverStream = prune(discoverStream);
+
+                        if (discoverStream == null) {
+                            continue;
+                        }
+                    }
+
+                    MAPPER.writeValue(generator, discoverStream);
+                    count++;
+                }
+                generator.writeEndArray();
+            }
+
+            generator.writeEndObject();
+        }
+
+        return count;
+    }
+
+    /**
+     * Read every stream of a catalog, one at a time.
+     */
+    public static void forEach(Path catalog, Consumer<DiscoverStream> consumer) throws IOException {
+        try (JsonParser parser = MAPPER.createParser(catalog.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid catalog '" + catalog.getFileName() + "', expected a json object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                if (!field.equals("streams") || token != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    consumer.accept(parser.readValueAs(DiscoverStream.class));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a catalog with the streams of {@code update} and the streams of {@code base} that are not replaced.
+     */
+    public static void merge(Path base, Path update, Predicate<DiscoverStream> replaced, Path catalog) throws IOException {
+        try (JsonGenerator generator = MAPPER.createGenerator(catalog.toFile(), JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("streams");
+
+            forEach(base, throwConsumer(discoverStream -> {
+                if (!replaced.test(discoverStream)) {
+                    MAPPER.writeValue(generator, discoverStream);
+                }
+            }));
+            forEach(update, throwConsumer(discoverStream -> MAPPER.writeValue(generator, discoverStream)));
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * The schemas of some streams of a catalog.
+     *
+     * @return the schemas, or null if a stream is not in the catalog or has no known schema
+     */
+    public static Set<String> schemas(Path catalog, Set<String> streams, Function<DiscoverStream, String> schema) throws IOException {
+        Set<String> found = new HashSet<>();
+        Set<String> schemas = new TreeSet<>();
+        AtomicBoolean unknownSchema = new AtomicBoolean(false);
+
+        forEach(catalog, discoverStream -> {
+            if (streams.contains(discoverStream.getStream())) {
+                found.add(discoverStream.getStream());
+
+                String current = schema.apply(discoverStream);
+                if (current == null) {
+                    unknownSchema.set(true);
+                } else {
+                    schemas.add(current);
+                }
+            }
+        });
+
+        if (!found.containsAll(streams) || unknownSchema.get()) {
+            return null;
+        }
+
+        return schemas;
+    }
+
+    /**
+     * @return the schema name, or the database name, of a stream from its metadata
+     */
+    public static String schema(DiscoverStream discoverStream) {
+        if (discoverStream.getMetadata() == null) {
+            return null;
+        }
+
+        return discoverStream.getMetadata()
+            .stream()
+            .filter(metadata -> metadata.getBreadcrumb().isEmpty() && metadata.getMetadata() != null)
+            .map(metadata -> metadata.getMetadata().getSchemaName() != null ?
+                metadata.getMetadata().getSchemaName() :
+                metadata.getMetadata().getDatabaseName()
+            )
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * @return the stream without its unselected properties, or null if the stream itself is not selected
+     */
+    public static DiscoverStream prune(DiscoverStream discoverStream) {
+        if (discoverStream.getMetadata() == null) {
+            return discoverStream;
+        }
+
+        Set<String> removed = new HashSet<>();
+        List<DiscoverStream.Metadata> metadata = new ArrayList<>();
+
+        for (DiscoverStream.Metadata current : discoverStream.getMetadata()) {
+            List<String> breadcrumb = current.getBreadcrumb();
+
+            if (breadcrumb.isEmpty()) {
+                if (current.getMetadata() != null && !current.getMetadata().isSelected()) {
+                    return null;
+                }
+            } else if (breadcrumb.size() == 2 && breadcrumb.get(0).equals("properties") && !included(current)) {
+                removed.add(breadcrumb.get(1));
+                continue;
+            }
+
+            metadata.add(current);
+        }
+
+        if (removed.isEmpty()) {
+            return discoverStream;
+        }
+
+        DiscoverStream pruned = discoverStream.withMetadata(metadata);
+
+        if (discoverStream.getSchema() != null && discoverStream.getSchema().get("properties") instanceof Map<?, ?> properties) {
+            Map<String, Object> prunedProperties = new LinkedHashMap<>();
+            properties.forEach((key, value) -> {
+                if (!removed.contains(key.toString())) {
+                    prunedProperties.put(key.toString(), value);
+                }
+            });
+
+            Map<String, Object> schema = new LinkedHashMap<>(discoverStream.getSchema());
+            schema.put("properties", prunedProperties);
+
+            pruned = pruned.withSchema(schema);
+        }
+
+        pruned.getExtraFields().putAll(discoverStream.getExtraFields());
+
+        return pruned;
+    }
+
+    private static boolean included(DiscoverStream.Metadata metadata) {
+        return metadata.getMetadata() == null ||
+            metadata.getMetadata().isSelected() ||
+            metadata.getMetadata().getInclusion() == DiscoverMetadata.Inclusion.automatic;
+    }
+}
@@ -0,0 +1,62 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Compression;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class CompressionService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static String extension(Compression compression) {
+        return switch (compression) {
+            case NONE -> ".json";
+            case GZIP -> ".json.gz";
+        };
+    }
+
+    public static OutputStream compress(OutputStream outputStream, Compression compression) throws IOException {
+        return compress(outputStream, compression, BUFFER_SIZE);
+    }
+
+    public static OutputStream compress(OutputStream outputStream, Compression compression, int bufferSize) throws IOException {
+        return switch (compression) {
+            case NONE -> new BufferedOutputStream(outputStream, bufferSize);
+            case GZIP -> new GZIPOutputStream(outputStream, bufferSize);
+        };
+    }
+
+    public static File compress(File file, Compression compression) throws IOException {
+        if (compression == Compression.NONE) {
+            return file;
+        }
+
+        File compressed = File.createTempFile("message", extension(compression), file.getParentFile());
+
+        try (OutputStream outputStream = compress(new FileOutputStream(compressed), compression)) {
+            Files.copy(file.toPath(), outputStream);
+        }
+
+        return compressed;
+    }
+
+    /**
+     * Detect the compression from the first bytes of the stream and return a stream reading the uncompressed content.
+     */
+    public static InputStream decompress(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, BUFFER_SIZE);
+
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+
+        return buffered;
+    }
+}
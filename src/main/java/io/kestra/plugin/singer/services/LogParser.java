@@ -0,0 +1,167 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.singer.models.Metric;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Parses the json logs written on stderr by the connectors with the Jackson token api.
+ * Metric logs are detected on the raw line and bound straight to a {@link Metric}, and the other logs are only
+ * formatted when their level is enabled.
+ */
+public class LogParser {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson();
+    private static final ObjectReader METRIC_READER = MAPPER.readerFor(Metric.class);
+    private static final String METRIC_PREFIX = "METRIC: {";
+    private static final String FORMAT = "[Date: {}] [Name: {}] {}{}";
+
+    private final Logger logger;
+    private final Consumer<Metric> metrics;
+
+    public LogParser(Logger logger, Consumer<Metric> metrics) {
+        this.logger = logger;
+        this.metrics = metrics;
+    }
+
+    public void accept(String line) {
+        try {
+            if (line.contains(METRIC_PREFIX) && this.metric(line)) {
+                return;
+            }
+
+            this.log(line);
+        } catch (IOException e) {
+            this.logger.info(line.trim());
+        }
+    }
+
+    private boolean metric(String line) throws IOException {
+        try (JsonParser parser = MAPPER.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                if (!field.equals("message") || token != JsonToken.VALUE_STRING) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                // the message is read from the parser buffer, without allocating it
+                char[] chars = parser.getTextCharacters();
+                int offset = parser.getTextOffset();
+                int length = parser.getTextLength();
+
+                if (!startsWith(chars, offset, length)) {
+                    return false;
+                }
+
+                try (JsonParser metricParser = MAPPER.createParser(chars, offset + METRIC_PREFIX.length() - 1, length - METRIC_PREFIX.length() + 1)) {
+                    this.metrics.accept(METRIC_READER.readValue(metricParser));
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void log(String line) throws IOException {
+        String asctime = null;
+        String name = null;
+        String levelname = null;
+        String message = null;
+        Map<String, Object> additional = null;
+
+        try (JsonParser parser = MAPPER.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                this.logger.info(line.trim());
+                return;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                switch (field) {
+                    case "asctime" -> asctime = text(parser, token);
+                    case "name" -> name = text(parser, token);
+                    case "levelname" -> levelname = text(parser, token);
+                    case "message" -> message = text(parser, token);
+                    default -> {
+                        if (additional == null) {
+                            additional = new LinkedHashMap<>();
+                        }
+                        additional.put(field, parser.readValueAs(Object.class));
+                    }
+                }
+            }
+        }
+
+        String level = levelname != null ? levelname : "ERROR";
+        boolean enabled = switch (level) {
+            case "DEBUG" -> this.logger.isDebugEnabled();
+            case "INFO" -> this.logger.isInfoEnabled();
+            case "WARNING" -> this.logger.isWarnEnabled();
+            default -> this.logger.isErrorEnabled();
+        };
+
+        if (!enabled) {
+            return;
+        }
+
+        Object[] args = new Object[]{
+            asctime,
+            name,
+            message != null ? message + " " : "",
+            additional != null ? additional.toString() : ""
+        };
+
+        switch (level) {
+            case "DEBUG" -> this.logger.debug(FORMAT, args);
+            case "INFO" -> this.logger.info(FORMAT, args);
+            case "WARNING" -> this.logger.warn(FORMAT, args);
+            default -> this.logger.error(FORMAT, args);
+        }
+    }
+
+    private static boolean startsWith(char[] chars, int offset, int length) {
+        if (length < METRIC_PREFIX.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < METRIC_PREFIX.length(); i++) {
+            if (chars[offset + i] != METRIC_PREFIX.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+
+        return parser.getText();
+    }
+}
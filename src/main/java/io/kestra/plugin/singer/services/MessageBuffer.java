@@ -0,0 +1,265 @@
+package io.kestra.plugin.singer.services;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A buffer of Singer messages bounded in memory, filled by a producer and consumed message by message or as a
+ * newline delimited stream.
+ * When full, the producer is blocked, propagating the backpressure of the consumer, or if a spill directory is
+ * provided, the next messages are appended to a local file until the consumer catches up.
+ */
+public class MessageBuffer extends InputStream {
+    private final long capacity;
+    private final Path spillDirectory;
+
+    private final Deque<String> messages = new ArrayDeque<>();
+    // the UTF-8 size of the messages in memory
+    private long size;
+    private boolean completed;
+    private boolean cancelled;
+    private Exception failure;
+
+    private File spillFile;
+    private Writer spillWriter;
+    private BufferedReader spillReader;
+    private long spillWritten;
+    private long spillFlushed;
+    private long spillRead;
+    private long spilledCount;
+    private long spilledBytes;
+
+    private byte[] current;
+    private int position;
+
+    public MessageBuffer(long capacity) {
+        this(capacity, null);
+    }
+
+    public MessageBuffer(long capacity, Path spillDirectory) {
+        this.capacity = capacity;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public synchronized void put(String message) throws IOException, InterruptedException {
+        long bytes = MessageService.size(message);
+
+        if (this.spillDirectory == null) {
+            while (!this.cancelled && this.full(bytes)) {
+                this.wait();
+            }
+        }
+
+        if (this.cancelled) {
+            throw new IOException("Buffer reader is gone, unable to write new messages");
+        }
+
+        // once spilling, messages must go to disk until it is drained to keep the order
+        if (this.spillDirectory != null && (this.spillRead < this.spillWritten || this.full(bytes))) {
+            this.spill(message, bytes);
+        } else {
+            this.messages.add(message);
+            this.size += bytes;
+        }
+
+        this.notifyAll();
+    }
+
+    /**
+     * No more messages will be written, the consumer will reach the end once the buffer is drained.
+     */
+    public synchronized void complete() {
+        this.completed = true;
+        this.notifyAll();
+    }
+
+    /**
+     * The producer has failed, the consumer will receive the failure.
+     */
+    public synchronized void fail(Exception exception) {
+        this.failure = exception;
+        this.notifyAll();
+    }
+
+    /**
+     * The consumer is gone, pending and future writes will fail.
+     */
+    public synchronized void cancel() {
+        this.cancelled = true;
+        this.messages.clear();
+        this.size = 0;
+        this.notifyAll();
+    }
+
+    /**
+     * Wait for the next message, returning null once the buffer is completed and drained.
+     * The failure of the producer is only thrown once the messages written before it are consumed.
+     */
+    public synchronized String take() throws Exception {
+        while (true) {
+            if (this.cancelled) {
+                return null;
+            }
+
+            String message = this.poll();
+            if (message != null) {
+                return message;
+            }
+
+            if (this.failure != null) {
+                throw this.failure;
+            }
+
+            if (this.completed) {
+                return null;
+            }
+
+            this.wait();
+        }
+    }
+
+    public synchronized long getSpilledCount() {
+        return this.spilledCount;
+    }
+
+    public synchronized long getSpilledBytes() {
+        return this.spilledBytes;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        byte[] single = new byte[1];
+
+        return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        if (this.cancelled) {
+            return -1;
+        }
+
+        try {
+            while (!this.hasNext()) {
+                if (this.failure != null) {
+                    throw new IOException("Buffer writer has failed", this.failure);
+                }
+
+                if (this.completed || this.cancelled) {
+                    return -1;
+                }
+
+                this.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for messages", e);
+        }
+
+        // copy as many buffered messages as possible to limit the number of writes downstream
+        int read = 0;
+        while (read < len && this.hasNext()) {
+            int length = Math.min(len - read, this.current.length - this.position);
+            System.arraycopy(this.current, this.position, b, off + read, length);
+            this.position += length;
+            read += length;
+        }
+
+        return read;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.resetSpill();
+    }
+
+    private boolean full(long bytes) {
+        return this.size > 0 && this.size + bytes > this.capacity;
+    }
+
+    private boolean hasNext() throws IOException {
+        if (this.current != null && this.position < this.current.length) {
+            return true;
+        }
+
+        String message = this.poll();
+        if (message == null) {
+            return false;
+        }
+
+        this.current = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        this.position = 0;
+
+        return true;
+    }
+
+    private String poll() throws IOException {
+        String message = this.messages.poll();
+
+        if (message != null) {
+            this.size -= MessageService.size(message);
+            this.notifyAll();
+
+            return message;
+        }
+
+        if (this.spillRead < this.spillWritten) {
+            // only flush when the reader has consumed everything already on disk
+            if (this.spillRead == this.spillFlushed) {
+                this.spillWriter.flush();
+                this.spillFlushed = this.spillWritten;
+            }
+
+            message = this.spillReader.readLine();
+            this.spillRead++;
+
+            if (this.spillRead == this.spillWritten) {
+                this.resetSpill();
+            }
+
+            return message;
+        }
+
+        return null;
+    }
+
+    private void spill(String message, long bytes) throws IOException {
+        if (this.spillWriter == null) {
+            this.spillFile = File.createTempFile("buffer", ".jsonl", this.spillDirectory.toFile());
+            this.spillWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.spillFile), StandardCharsets.UTF_8));
+            this.spillReader = new BufferedReader(new InputStreamReader(new FileInputStream(this.spillFile), StandardCharsets.UTF_8));
+        }
+
+        this.spillWriter.write(message);
+        this.spillWriter.write('\n');
+
+        this.spillWritten++;
+        this.spilledCount++;
+        this.spilledBytes += bytes + 1;
+    }
+
+    private void resetSpill() throws IOException {
+        if (this.spillWriter == null) {
+            return;
+        }
+
+        this.spillWriter.close();
+        this.spillReader.close();
+        Files.deleteIfExists(this.spillFile.toPath());
+
+        this.spillWriter = null;
+        this.spillReader = null;
+        this.spillFile = null;
+        this.spillWritten = 0;
+        this.spillFlushed = 0;
+        this.spillRead = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.singer.models.Message;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads a Singer message with the Jackson token api: only the fields needed by the task are bound,
+ * RECORD payloads are skipped without being materialized.
+ */
+public class MessageService {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson();
+    private static final TypeReference<Map<String, Object>> TYPE_REFERENCE = new TypeReference<>() {
+    };
+
+    public static Message parse(String line) throws IOException {
+        try (JsonParser parser = MAPPER.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Message.builder().type(Message.Type.UNKNOWN).build();
+            }
+
+            Message.MessageBuilder builder = Message.builder();
+            Message.Type type = Message.Type.UNKNOWN;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                switch (field) {
+                    case "type" -> type = Message.Type.of(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    case "stream" -> builder.stream(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    case "value" -> builder.value(token == JsonToken.START_OBJECT ? parser.readValueAs(TYPE_REFERENCE) : skip(parser));
+                    case "schema" -> builder.schema(token == JsonToken.START_OBJECT ? parser.readValueAs(TYPE_REFERENCE) : skip(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+
+            return builder
+                .type(type)
+                .build();
+        }
+    }
+
+    /**
+     * Size of the line once encoded in UTF-8, computed without encoding it.
+     */
+    public static long size(String line) {
+        long size = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < line.length() && Character.isLowSurrogate(line.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+
+        return size;
+    }
+
+    private static Map<String, Object> skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+
+        return null;
+    }
+}
@@ -0,0 +1,126 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Aggregates the connector metrics by series (name and tags), so that memory is bounded by the number of distinct
+ * series instead of the number of metrics emitted. Counters are summed, timers keep their count, sum, min, max and
+ * an histogram, all in primitive fields.
+ */
+public class MetricAggregator {
+    /**
+     * The upper bounds, in seconds, of the timer histogram buckets; the last bucket has no bound.
+     */
+    public static final double[] BUCKETS = {0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300};
+
+    private static final Pattern NAME_SEPARATOR = Pattern.compile("[_-]");
+
+    private final Map<Series, Aggregate> series = new ConcurrentHashMap<>();
+
+    public void add(Metric metric) {
+        if (metric.getMetric() == null || metric.getType() == null || metric.getValue() == null) {
+            return;
+        }
+
+        this.series
+            .computeIfAbsent(Series.of(metric), k -> new Aggregate())
+            .add(metric.getValue());
+    }
+
+    /**
+     * @return the values aggregated since the previous call, for the series that received any
+     */
+    public List<Snapshot> drain() {
+        List<Snapshot> snapshots = new ArrayList<>();
+
+        this.series.forEach((series, aggregate) -> {
+            Snapshot snapshot = aggregate.drain(series);
+
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        });
+
+        return snapshots;
+    }
+
+    public int size() {
+        return this.series.size();
+    }
+
+    public record Series(String name, Metric.Type type, List<String> tags) {
+        public static Series of(Metric metric) {
+            List<String> tags = new ArrayList<>();
+
+            if (metric.getTags() != null) {
+                metric.getTags()
+                    .entrySet()
+                    .stream()
+                    .filter(e -> e.getValue() instanceof String)
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> {
+                        tags.add(e.getKey().toLowerCase(Locale.ROOT));
+                        tags.add(((String) e.getValue()).toLowerCase(Locale.ROOT));
+                    });
+            }
+
+            return new Series(
+                "singer." + NAME_SEPARATOR.matcher(metric.getMetric()).replaceAll("."),
+                metric.getType(),
+                List.copyOf(tags)
+            );
+        }
+
+        public String[] tagsArray() {
+            return this.tags.toArray(String[]::new);
+        }
+    }
+
+    public record Snapshot(Series series, long count, double sum, double min, double max, long[] histogram) {
+    }
+
+    private static class Aggregate {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private final long[] histogram = new long[BUCKETS.length + 1];
+
+        private synchronized void add(double value) {
+            this.count++;
+            this.sum += value;
+            this.min = Math.min(this.min, value);
+            this.max = Math.max(this.max, value);
+
+            int bucket = 0;
+            while (bucket < BUCKETS.length && value > BUCKETS[bucket]) {
+                bucket++;
+            }
+            this.histogram[bucket]++;
+        }
+
+        private synchronized Snapshot drain(Series series) {
+            if (this.count == 0) {
+                return null;
+            }
+
+            Snapshot snapshot = new Snapshot(series, this.count, this.sum, this.min, this.max, this.histogram.clone());
+
+            this.count = 0;
+            this.sum = 0;
+            this.min = Double.POSITIVE_INFINITY;
+            this.max = Double.NEGATIVE_INFINITY;
+            Arrays.fill(this.histogram, 0);
+
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.kestra.plugin.singer.services;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A fifo created on the local filesystem that is fed by a background thread, allowing a process to read a stream
+ * as if it was a local file without copying it first.
+ */
+public class NamedPipe implements Closeable {
+    private final Path path;
+    private Thread writer;
+    private volatile Exception exception;
+
+    private NamedPipe(Path path) {
+        this.path = path;
+    }
+
+    public static NamedPipe create(Path path) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("mkfifo", path.toAbsolutePath().toString())
+            .redirectErrorStream(true)
+            .start();
+
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0) {
+            throw new IOException("Unable to create named pipe '" + path + "': " + output.trim());
+        }
+
+        return new NamedPipe(path);
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Start to copy the input stream to the pipe, the copy will block until a reader opens the pipe.
+     */
+    public void write(InputStream inputStream) {
+        this.writer = new Thread(
+            () -> {
+                try (inputStream; OutputStream outputStream = new FileOutputStream(this.path.toFile())) {
+                    inputStream.transferTo(outputStream);
+                } catch (Exception e) {
+                    this.exception = e;
+                }
+            },
+            "singer-named-pipe"
+        );
+
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Wait for the end of the copy, failing if the reader has not consumed the whole input.
+     */
+    public void await() throws IOException, InterruptedException {
+        this.release();
+
+        if (this.exception != null) {
+            throw new IOException("Unable to write the whole input to named pipe '" + this.path + "'", this.exception);
+        }
+    }
+
+    /**
+     * A writer is blocked until a reader opens the pipe: opening it in read/write mode never blocks on Linux and
+     * releases a writer whose reader never came or has died.
+     */
+    private void release() throws IOException, InterruptedException {
+        if (this.writer == null) {
+            return;
+        }
+
+        while (this.writer.isAlive()) {
+            try (RandomAccessFile ignored = new RandomAccessFile(this.path.toFile(), "rw")) {
+                this.writer.join(100);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.release();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Files.deleteIfExists(this.path);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.kestra.plugin.singer.services;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs the progress of the streams with a known row count at a fixed interval: percent complete, rows per second
+ * since the first record of the stream and an estimation of the remaining time.
+ * Row counts are estimations, so a stream is not reported anymore once the tap syncs another one
+ * ({@code currently_syncing} of the STATE messages), or when it has received no record since the previous report.
+ * It is not thread safe, messages must be counted from a single thread.
+ */
+public class ProgressTracker {
+    private static final int CHECK_EVERY = 1000;
+
+    private final long interval;
+    private final Logger logger;
+    private final LongSupplier clock;
+
+    private final Map<String, Progress> streams = new HashMap<>();
+    private final List<Progress> progresses = new ArrayList<>();
+    private String currentlySyncing;
+    private long last;
+    private int unchecked = 0;
+
+    public ProgressTracker(Duration interval, Logger logger) {
+        this(interval, logger, System::nanoTime);
+    }
+
+    /**
+     * @param clock the current time in nanoseconds
+     */
+    ProgressTracker(Duration interval, Logger logger, LongSupplier clock) {
+        this.interval = interval.toNanos();
+        this.logger = logger;
+        this.clock = clock;
+        this.last = clock.getAsLong();
+    }
+
+    /**
+     * @param names the names of the stream in the messages, its stream name and its id
+     */
+    public void expect(long total, String... names) {
+        Progress progress = null;
+
+        for (String name : names) {
+            if (name == null) {
+                continue;
+            }
+
+            if (progress == null) {
+                progress = new Progress(name, total);
+                this.progresses.add(progress);
+            }
+
+            this.streams.put(name, progress);
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.progresses.isEmpty();
+    }
+
+    public void record(String stream) {
+        Progress progress = this.streams.get(stream);
+
+        if (progress != null) {
+            if (progress.count++ == 0) {
+                progress.start = this.clock.getAsLong();
+            }
+            progress.finished = false;
+        }
+
+        this.check();
+    }
+
+    public void state(Map<String, Object> state) {
+        String currentlySyncing = state.get("currently_syncing") instanceof String stream ? stream : null;
+
+        if (this.currentlySyncing != null && !this.currentlySyncing.equals(currentlySyncing)) {
+            Progress progress = this.streams.get(this.currentlySyncing);
+
+            if (progress != null) {
+                progress.finished = true;
+            }
+        }
+
+        this.currentlySyncing = currentlySyncing;
+        this.check();
+    }
+
+    private void check() {
+        if (++this.unchecked < CHECK_EVERY) {
+            return;
+        }
+
+        this.unchecked = 0;
+        long now = this.clock.getAsLong();
+
+        if (now - this.last >= this.interval) {
+            this.last = now;
+            this.report(now);
+        }
+    }
+
+    private void report(long now) {
+        for (Progress progress : this.progresses) {
+            boolean idle = progress.count == progress.reported;
+            progress.reported = progress.count;
+
+            if (progress.count == 0 || progress.finished || idle || progress.count >= progress.total) {
+                continue;
+            }
+
+            double seconds = (now - progress.start) / 1e9;
+            double rate = seconds > 0 ? progress.count / seconds : 0;
+
+            this.logger.info(
+                "Stream '{}': {} / {} rows ({}%), {} rows/s, ETA {}",
+                progress.name,
+                progress.count,
+                progress.total,
+                String.format(Locale.ROOT, "%.1f", progress.count * 100D / progress.total),
+                String.format(Locale.ROOT, "%.0f", rate),
+                rate > 0 ? Duration.ofSeconds((long) ((progress.total - progress.count) / rate)) : "unknown"
+            );
+        }
+    }
+
+    private static class Progress {
+        private final String name;
+        private final long total;
+        private long start;
+        private long count = 0;
+        private long reported = 0;
+        private boolean finished = false;
+
+        private Progress(String name, long total) {
+            this.name = name;
+            this.total = total;
+        }
+    }
+}
@@ -5,65 +5,131 @@ import io.kestra.plugin.singer.models.DiscoverStream;
 import io.kestra.plugin.singer.models.DiscoverStreams;
 import io.kestra.plugin.singer.models.StreamsConfiguration;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class SelectedService {
     public static DiscoverStreams fill(DiscoverStreams discoverStreams, List<StreamsConfiguration> streamConfigs) {
+        return compile(streamConfigs).fill(discoverStreams);
+    }
+
+    /**
+     * Compile the stream configurations once, to select many streams without parsing the patterns again.
+     */
+    public static Selector compile(List<StreamsConfiguration> streamConfigs) {
         Objects.requireNonNull(streamConfigs, "illegal null 'streamConfigs'");
 
-        final List<StreamsConfiguration> finalConfigs = streamConfigs;
+        return new Selector(streamConfigs);
+    }
+
+    public static class Selector {
+        private final List<CompiledConfiguration> wildcards = new ArrayList<>();
+        private final Map<String, List<CompiledConfiguration>> byStream = new HashMap<>();
 
-        return new DiscoverStreams(discoverStreams
-            .getStreams()
-            .stream()
-            .map(discoverStream -> {
-                for (StreamsConfiguration config : finalConfigs) {
-                    if (config.getStream() == null || config.getStream().equals(discoverStream.getStream())) {
-                        discoverStream = selectStream(discoverStream, config);
-                    }
+        private Selector(List<StreamsConfiguration> streamConfigs) {
+            List<CompiledConfiguration> compiled = streamConfigs
+                .stream()
+                .map(CompiledConfiguration::new)
+                .toList();
+
+            // the configurations applying to a stream are kept in declaration order, the last matching one wins
+            for (CompiledConfiguration config : compiled) {
+                if (config.stream == null) {
+                    this.wildcards.add(config);
+                    this.byStream.values().forEach(list -> list.add(config));
+                } else {
+                    this.byStream
+                        .computeIfAbsent(config.stream, k -> new ArrayList<>(this.wildcards))
+                        .add(config);
                 }
+            }
+        }
 
+        public DiscoverStreams fill(DiscoverStreams discoverStreams) {
+            return new DiscoverStreams(discoverStreams
+                .getStreams()
+                .stream()
+                .map(this::select)
+                .collect(Collectors.toList())
+            );
+        }
+
+        public DiscoverStream select(DiscoverStream discoverStream) {
+            List<CompiledConfiguration> configs = this.byStream.getOrDefault(discoverStream.getStream(), this.wildcards);
+
+            if (configs.isEmpty()) {
                 return discoverStream;
-            })
-            .collect(Collectors.toList())
-        );
+            }
+
+            return discoverStream.withMetadata(
+                discoverStream
+                    .getMetadata()
+                    .stream()
+                    .map(metadata -> {
+                        String breadcrumb = null;
+
+                        for (int i = configs.size() - 1; i >= 0; i--) {
+                            CompiledConfiguration config = configs.get(i);
+
+                            if (config.patterns != null) {
+                                if (breadcrumb == null) {
+                                    breadcrumb = metadata.breadcrumb();
+                                }
+
+                                if (!config.matches(breadcrumb)) {
+                                    continue;
+                                }
+                            }
+
+                            return metadata.withMetadata(config.convert(metadata));
+                        }
+
+                        return metadata;
+                    })
+                    .collect(Collectors.toList())
+            );
+        }
     }
 
-    private static boolean matchProperties(DiscoverStream.Metadata metadata, List<String> propertiesPattern) {
-        if (propertiesPattern == null || propertiesPattern.size() == 0) {
-            return true;
+    private static class CompiledConfiguration {
+        private final StreamsConfiguration configuration;
+        private final String stream;
+        private final List<Pattern> patterns;
+
+        private CompiledConfiguration(StreamsConfiguration configuration) {
+            this.configuration = configuration;
+            this.stream = configuration.getStream();
+            this.patterns = configuration.getPropertiesPattern() == null || configuration.getPropertiesPattern().isEmpty() ?
+                null :
+                configuration.getPropertiesPattern().stream().map(Pattern::compile).toList();
         }
 
-        return propertiesPattern
-            .stream()
-            .anyMatch(s -> metadata.breadcrumb().matches(s));
-    }
+        private boolean matches(String breadcrumb) {
+            for (Pattern pattern : this.patterns) {
+                if (pattern.matcher(breadcrumb).matches()) {
+                    return true;
+                }
+            }
 
-    private static DiscoverStream selectStream(DiscoverStream discoverStream, StreamsConfiguration streamsConfiguration) {
-        return discoverStream.withMetadata(
-            discoverStream
-                .getMetadata()
-                .stream()
-                .map(metadata -> {
-                    if (!matchProperties(metadata, streamsConfiguration.getPropertiesPattern())) {
-                        return metadata;
-                    }
+            return false;
+        }
 
-                    DiscoverMetadata converted = metadata.getMetadata()
-                        .withSelected(streamsConfiguration.getSelected());
+        private DiscoverMetadata convert(DiscoverStream.Metadata metadata) {
+            DiscoverMetadata converted = metadata.getMetadata()
+                .withSelected(this.configuration.getSelected());
 
-                    if (metadata.getBreadcrumb().size() == 0) {
-                        converted = converted
-                            .withReplicationMethod(streamsConfiguration.getReplicationMethod())
-                            .withReplicationKey(streamsConfiguration.getReplicationKeys());
-                    }
+            if (metadata.getBreadcrumb().isEmpty()) {
+                converted = converted
+                    .withReplicationMethod(this.configuration.getReplicationMethod())
+                    .withReplicationKey(this.configuration.getReplicationKeys());
+            }
 
-                    return metadata
-                        .withMetadata(converted);
-                })
-                .collect(Collectors.toList())
-        );
+            return converted;
+        }
     }
 }
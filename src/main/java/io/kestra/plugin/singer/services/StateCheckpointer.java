@@ -0,0 +1,105 @@
+package io.kestra.plugin.singer.services;
+
+import org.slf4j.Logger;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Saves the state during a sync, every {@code states} STATE messages or every {@code interval}, on a background
+ * thread. Only the last state is kept when the save is slower than the messages, and {@link #close()} waits for the
+ * pending save, so that it is never written after the final state.
+ */
+public class StateCheckpointer implements Closeable {
+    private final Integer states;
+    private final Duration interval;
+    private final Consumer<Map<String, Object>> writer;
+    private final Logger logger;
+
+    private final AtomicReference<Map<String, Object>> pending = new AtomicReference<>();
+    private ExecutorService executor;
+    private int count = 0;
+    private long last = System.nanoTime();
+    private volatile long checkpoints = 0;
+
+    public StateCheckpointer(Integer states, Duration interval, Consumer<Map<String, Object>> writer, Logger logger) {
+        this.states = states;
+        this.interval = interval;
+        this.writer = writer;
+        this.logger = logger;
+    }
+
+    /**
+     * @param state the whole state after a STATE message, copied before this method returns
+     */
+    public void accept(Map<String, Object> state) {
+        if (this.states == null && this.interval == null) {
+            return;
+        }
+
+        this.count++;
+        long now = System.nanoTime();
+
+        if ((this.states == null || this.count < this.states) && (this.interval == null || now - this.last < this.interval.toNanos())) {
+            return;
+        }
+
+        this.count = 0;
+        this.last = now;
+
+        if (this.pending.getAndSet(new HashMap<>(state)) == null) {
+            if (this.executor == null) {
+                this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "singer-state-checkpoint");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+
+            this.executor.execute(this::flush);
+        }
+    }
+
+    public long getCheckpoints() {
+        return this.checkpoints;
+    }
+
+    private void flush() {
+        Map<String, Object> state = this.pending.getAndSet(null);
+
+        if (state == null) {
+            return;
+        }
+
+        try {
+            this.writer.accept(state);
+            this.checkpoints++;
+        } catch (Exception e) {
+            this.logger.warn("Unable to checkpoint the state", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (this.executor == null) {
+            return;
+        }
+
+        this.executor.shutdown();
+
+        try {
+            if (!this.executor.awaitTermination(5, TimeUnit.MINUTES)) {
+                this.logger.warn("Timeout waiting for the state checkpoint");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.kestra.plugin.singer.models.Compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+public class StateService {
+    /**
+     * Merge a STATE message value in the state: the bookmarks are merged by stream, keeping the latest bookmark of
+     * each stream, the other keys are replaced.
+     * Nested maps are never mutated, a new one is set instead, so a shallow copy of the state is a consistent snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public static void merge(Map<String, Object> state, Map<String, Object> value) {
+        value.forEach((key, current) -> {
+            if (key.equals("bookmarks") && current instanceof Map<?, ?> bookmarks && state.get(key) instanceof Map<?, ?> previous) {
+                Map<String, Object> merged = new HashMap<>((Map<String, Object>) previous);
+                merged.putAll((Map<String, Object>) bookmarks);
+
+                state.put(key, merged);
+            } else {
+                state.put(key, current);
+            }
+        });
+    }
+
+    public static byte[] serialize(ObjectMapper mapper, Map<String, Object> state, Compression compression) throws IOException {
+        if (compression == Compression.NONE) {
+            return mapper.writeValueAsBytes(state);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream outputStream = CompressionService.compress(bytes, compression)) {
+            mapper.writeValue(outputStream, state);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a state saved with any compression, including the plain json states saved before compression was supported.
+     */
+    public static String read(InputStream inputStream) throws IOException {
+        try (InputStream decompressed = CompressionService.decompress(inputStream)) {
+            return new String(decompressed.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
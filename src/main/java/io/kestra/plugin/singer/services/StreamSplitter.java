@@ -0,0 +1,94 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Compression;
+import io.kestra.plugin.singer.models.Message;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Demultiplexes a raw Singer stream into one file per stream. SCHEMA messages are written in place, so every file
+ * starts with the schema of its stream and still contains any later schema change.
+ * Only the files of the streams written last are kept open, the others are closed and appended to when their stream
+ * is written again, as a new gzip member when compressed.
+ */
+public class StreamSplitter implements Closeable {
+    private static final int MAX_OPEN_FILES = 32;
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Path directory;
+    private final Compression compression;
+    private final int maxOpenFiles;
+    private final Map<String, File> files = new LinkedHashMap<>();
+    private final Map<String, OutputStream> outputs = new LinkedHashMap<>(16, 0.75f, true);
+
+    public StreamSplitter(Path directory, Compression compression) {
+        this(directory, compression, MAX_OPEN_FILES);
+    }
+
+    public StreamSplitter(Path directory, Compression compression, int maxOpenFiles) {
+        this.directory = directory;
+        this.compression = compression;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    public void accept(Message message, String line) throws IOException {
+        if (message.getStream() == null) {
+            return;
+        }
+
+        switch (message.getType()) {
+            case SCHEMA, RECORD, ACTIVATE_VERSION, BATCH -> this.write(message.getStream(), line);
+            default -> {
+            }
+        }
+    }
+
+    private void write(String stream, String line) throws IOException {
+        OutputStream output = this.outputs.get(stream);
+
+        if (output == null) {
+            output = this.open(stream);
+        }
+
+        output.write(line.getBytes(StandardCharsets.UTF_8));
+        output.write('\n');
+    }
+
+    private OutputStream open(String stream) throws IOException {
+        // close the least recently written file
+        if (this.outputs.size() >= this.maxOpenFiles) {
+            Iterator<OutputStream> iterator = this.outputs.values().iterator();
+            iterator.next().close();
+            iterator.remove();
+        }
+
+        File file = this.files.get(stream);
+        if (file == null) {
+            file = File.createTempFile("stream", CompressionService.extension(this.compression), this.directory.toFile());
+            this.files.put(stream, file);
+        }
+
+        OutputStream output = CompressionService.compress(new FileOutputStream(file, true), this.compression, BUFFER_SIZE);
+        this.outputs.put(stream, output);
+
+        return output;
+    }
+
+    public Map<String, File> files() {
+        return new LinkedHashMap<>(this.files);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (OutputStream output : this.outputs.values()) {
+            output.close();
+        }
+
+        this.outputs.clear();
+    }
+}
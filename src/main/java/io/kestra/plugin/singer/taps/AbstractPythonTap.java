@@ -1,36 +1,59 @@
 package io.kestra.plugin.singer.taps;
 
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.kestra.core.exceptions.IllegalVariableEvaluationException;
 import io.kestra.core.models.annotations.PluginProperty;
 import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.models.tasks.runners.DefaultLogConsumer;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.storages.StorageContext;
 import io.kestra.plugin.singer.AbstractPythonSinger;
-import io.kestra.plugin.singer.models.DiscoverStreams;
+import io.kestra.plugin.singer.models.Compression;
+import io.kestra.plugin.singer.models.DiscoverCache;
+import io.kestra.plugin.singer.models.DiscoverStream;
 import io.kestra.plugin.singer.models.Feature;
+import io.kestra.plugin.singer.models.Message;
+import io.kestra.plugin.singer.models.StreamStats;
 import io.kestra.plugin.singer.models.StreamsConfiguration;
+import io.kestra.plugin.singer.services.CatalogService;
+import io.kestra.plugin.singer.services.CompressionService;
+import io.kestra.plugin.singer.services.MessageService;
+import io.kestra.plugin.singer.services.ProgressTracker;
 import io.kestra.plugin.singer.services.SelectedService;
+import io.kestra.plugin.singer.services.StateService;
+import io.kestra.plugin.singer.services.StreamSplitter;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 
 import java.io.*;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static io.kestra.core.utils.Rethrow.throwConsumer;
 
@@ -40,6 +63,9 @@ import static io.kestra.core.utils.Rethrow.throwConsumer;
 @Getter
 @NoArgsConstructor
 public abstract class AbstractPythonTap extends AbstractPythonSinger implements RunnableTask<AbstractPythonTap.Output> {
+    private static final String RAW_FILENAME = "raw.jsonl";
+    private static final String DISCOVERY_STATE_NAME = "singer-discovery";
+
     @Getter(AccessLevel.NONE)
     protected transient Pair<File, OutputStream> rawSingerStream;
 
@@ -52,17 +78,130 @@ public abstract class AbstractPythonTap extends AbstractPythonSinger implements
     @Valid
     protected List<StreamsConfiguration> streamsConfigurations;
 
+    @Schema(deprecated = true,
+        title = "Stream the tap output while the tap is running.",
+        description = "By default, the tap output is written to a local `raw.jsonl` file that is read back once the tap has exited. " +
+            "When enabled, every line written by the tap is consumed as soon as it is produced, so that state parsing, counting " +
+            "and upload overlap with the extraction. The task runner must deliver stdout line by line."
+    )
+    @Builder.Default
+    protected Property<Boolean> streaming = Property.ofValue(false);
+
+    @Schema(deprecated = true,
+        title = "Also split the tap output into one file per stream.",
+        description = "Every file starts with the SCHEMA message of its stream followed by its RECORD messages, so that each " +
+            "stream can be loaded by a separate target. STATE messages are only kept in the `raw` output."
+    )
+    @Builder.Default
+    protected Property<Boolean> splitStreams = Property.ofValue(false);
+
+    @Schema(deprecated = true,
+        title = "The compression of the raw singer streams stored in internal storage.",
+        description = "Targets detect compressed inputs and decompress them on the fly."
+    )
+    @Builder.Default
+    protected Property<Compression> compression = Property.ofValue(Compression.NONE);
+
+    @Schema(deprecated = true,
+        title = "The duration during which a discovered catalog is reused.",
+        description = "When set, the catalog discovered is kept in the KV Store under a key computed from the hash of the " +
+            "connector configuration and packages, and reused by the next runs instead of running the discovery again. " +
+            "The stream configurations are applied on each run, so they can change without a new discovery."
+    )
+    protected Property<Duration> discoveryCacheTtl;
+
+    @Schema(deprecated = true,
+        title = "The maximum size in bytes of a discovered catalog kept in the KV Store.",
+        description = "A KV Store value is written from memory, so a larger catalog is not cached and is discovered again on each run."
+    )
+    @Builder.Default
+    protected Property<Long> discoveryCacheMaxSize = Property.ofValue(16L * 1024 * 1024);
+
+    @Schema(deprecated = true,
+        title = "Run the discovery even if a cached catalog is available, and cache the new one."
+    )
+    @Builder.Default
+    protected Property<Boolean> discoveryRefresh = Property.ofValue(false);
+
+    @Schema(deprecated = true,
+        title = "Remove the streams and the properties that are not selected from the catalog passed to the tap.",
+        description = "By default, every discovered stream is passed to the tap with a `selected` flag. Properties with an " +
+            "`automatic` inclusion are always kept."
+    )
+    @Builder.Default
+    protected Property<Boolean> pruneCatalog = Property.ofValue(false);
+
+    @Schema(deprecated = true,
+        title = "Only discover again the schemas of the configured streams when the cached catalog is outdated.",
+        description = "Requires `discoveryCacheTtl` and a connector able to filter its discovery by schema. The schemas of " +
+            "the streams named in `streamsConfigurations` are looked up in the cached catalog, discovered again and merged " +
+            "into it. A full discovery is done when a configuration selects every stream, when a stream is not in the " +
+            "cached catalog or when `discoveryRefresh` is enabled, and only a full discovery renews the cache duration."
+    )
+    @Builder.Default
+    protected Property<Boolean> incrementalDiscovery = Property.ofValue(false);
+
+    @Getter(AccessLevel.NONE)
+    protected transient Map<String, Object> discoveryFilter;
+
+    @Schema(deprecated = true,
+        title = "The interval between two logs of the progress of the streams.",
+        description = "Only the selected streams with a `row-count` in their discovered metadata, as provided by database " +
+            "taps, are reported with their percent complete, rows per second and estimated remaining time. Row counts are " +
+            "estimations, so a stream is not reported anymore once the tap syncs another one, or while it receives no records."
+    )
+    @Builder.Default
+    protected Property<Duration> progressInterval = Property.ofValue(Duration.ofMinutes(1));
+
+    @Getter(AccessLevel.NONE)
+    protected transient ProgressTracker progressTracker;
+
+    @Getter(AccessLevel.NONE)
+    protected transient Compression rawCompression;
+
+    @Getter(AccessLevel.NONE)
+    protected transient StreamSplitter streamSplitter;
+
     @Getter(value = AccessLevel.NONE)
     @Builder.Default
-    private transient Map<String, AtomicInteger> recordsCount = new ConcurrentHashMap<>();
+    private transient Map<String, AtomicLong> recordsCount = new ConcurrentHashMap<>();
+
+    @Getter(value = AccessLevel.NONE)
+    @Builder.Default
+    private transient Map<String, AtomicLong> bytesCount = new ConcurrentHashMap<>();
 
     abstract public List<Feature> features();
 
+    @Override
+    protected String role() {
+        return "tap";
+    }
+
     public void initEnvDiscoveryAndState(RunContext runContext) throws Exception {
+        this.initWorkingDirectory(runContext);
+
         // catalog or properties
         if (this.features().contains(Feature.PROPERTIES) || this.features().contains(Feature.CATALOG)) {
-            DiscoverStreams discoverProperties = this.discover(runContext, this.finalCommand(runContext));
-            this.writeSingerFiles(this.catalogName() + ".json", discoverProperties);
+            Path discover = this.phase(runContext, "discover", () -> this.discover(runContext, this.finalCommand(runContext)));
+            this.phase(runContext, "catalog", () -> CatalogService.select(
+                discover,
+                this.workingDirectory.resolve(this.catalogName() + ".json"),
+                SelectedService.compile(this.streamsConfigurations),
+                runContext.render(this.pruneCatalog).as(Boolean.class).orElse(false)
+            ));
+
+            Optional<Duration> progressInterval = runContext.render(this.progressInterval).as(Duration.class);
+            if (progressInterval.isPresent()) {
+                ProgressTracker progressTracker = this.progressTracker(
+                    this.workingDirectory.resolve(this.catalogName() + ".json"),
+                    progressInterval.get(),
+                    runContext
+                );
+
+                if (!progressTracker.isEmpty()) {
+                    this.progressTracker = progressTracker;
+                }
+            }
         }
 
         // state
@@ -73,7 +212,7 @@ public abstract class AbstractPythonTap extends AbstractPythonSinger implements
                     "state.json",
                     runContext.storage().getTaskStorageContext().map(StorageContext.Task::getTaskRunValue).orElse(null)
                 );
-                this.writeSingerFiles("state.json", IOUtils.toString(taskStateFile, StandardCharsets.UTF_8));
+                this.writeSingerFiles("state.json", StateService.read(taskStateFile));
             } catch (FileNotFoundException e) {
                 this.writeSingerFiles("state.json", "{}");
             }
@@ -81,85 +220,378 @@ public abstract class AbstractPythonTap extends AbstractPythonSinger implements
     }
 
     public Output run(RunContext runContext) throws Exception {
+        boolean streaming = runContext.render(this.streaming).as(Boolean.class).orElse(false);
+        this.rawCompression = runContext.render(this.compression).as(Compression.class).orElse(Compression.NONE);
+
         // prepare
         this.initEnvDiscoveryAndState(runContext);
 
+        if (runContext.render(this.splitStreams).as(Boolean.class).orElse(false)) {
+            this.streamSplitter = new StreamSplitter(runContext.workingDir().path(), this.rawCompression);
+        }
+
         // sync
-        Long itemsCount = runSync(runContext);
+        Long itemsCount = this.phase(runContext, "sync", () -> runSync(runContext, streaming, true, throwConsumer(this::rawData)));
 
         // metrics
-        runContext.metric(Counter.of("records", itemsCount));
-
-        this.saveSingerMetrics(runContext);
-        runContext.logger().info("Ended singer with {} raw items", itemsCount);
-
-        if (this.rawSingerStream == null) {
-            this.rawData("");
-        }
+        Map<String, StreamStats> streamsStats = this.saveSyncMetrics(runContext, itemsCount);
 
         Output.OutputBuilder outputBuilder = Output.builder()
             .count(itemsCount)
-            .raw(runContext.storage().putFile(this.rawSingerStream.getLeft()));
+            .streams(streamsStats);
+
+        this.phase(runContext, "upload", () -> {
+            // in file mode, the tap output is already the raw singer stream and is uploaded as is
+            File rawFile = streaming ?
+                this.closeRawData() :
+                CompressionService.compress(this.workingDirectory.resolve(RAW_FILENAME).toFile(), this.rawCompression);
+
+            outputBuilder.raw(runContext.storage().putFile(rawFile));
+
+            if (this.streamSplitter != null) {
+                this.streamSplitter.close();
+
+                Map<String, URI> rawStreams = new TreeMap<>();
+                for (Map.Entry<String, File> entry : this.streamSplitter.files().entrySet()) {
+                    rawStreams.put(entry.getKey(), runContext.storage().putFile(entry.getValue()));
+                }
+
+                outputBuilder.rawStreams(rawStreams);
+            }
+
+            return null;
+        });
 
         if (this.features().contains(Feature.STATE)) {
-            this.saveState(runContext, runContext.render(this.stateName).as(String.class).orElseThrow(), this.stateRecords);
+            this.phase(runContext, "state", () -> this.saveState(runContext, runContext.render(this.stateName).as(String.class).orElseThrow(), this.stateRecords));
         }
 
         return outputBuilder
+            .phases(this.phases())
             .build();
     }
 
-    @SuppressWarnings("unchecked")
-    private Long runSync(RunContext runContext) throws Exception {
-        Flux<String> flowable = Flux.create(
-            throwConsumer(emitter -> {
-                this.run(runContext, this.tapCommand(runContext), new SingerLogDispatcher(runContext, metrics, null));
+    /**
+     * Run the tap in streaming mode and hand every message to the consumer instead of storing a raw output.
+     * The tap is blocked while the consumer is, without spilling its messages to disk.
+     */
+    public Output pipe(RunContext runContext, Consumer<String> consumer) throws Exception {
+        this.initEnvDiscoveryAndState(runContext);
 
-                try (BufferedReader reader = new BufferedReader(new FileReader(this.workingDirectory.resolve("raw.jsonl").toFile()))) {
-                    reader.lines().forEach(emitter::next);
-                }
+        Long itemsCount = this.phase(runContext, "sync", () -> runSync(runContext, true, false, consumer));
 
-                emitter.complete();
-            }),
-            FluxSink.OverflowStrategy.BUFFER
-        );
+        return Output.builder()
+            .count(itemsCount)
+            .streams(this.saveSyncMetrics(runContext, itemsCount))
+            .phases(this.phases())
+            .build();
+    }
+
+    private Map<String, StreamStats> saveSyncMetrics(RunContext runContext, Long itemsCount) {
+        this.metric(runContext, Counter.of("records", itemsCount));
+
+        Map<String, StreamStats> streamsStats = this.streamsStats();
+        streamsStats.forEach((stream, stats) -> {
+            this.metric(runContext, Counter.of("stream.records", stats.getRecords(), "stream", stream));
+            this.metric(runContext, Counter.of("stream.bytes", stats.getBytes(), "stream", stream));
+        });
+
+        this.saveSingerMetrics(runContext);
+        runContext.logger().info("Ended singer with {} raw items", itemsCount);
+
+        return streamsStats;
+    }
+
+    private Long runSync(RunContext runContext, boolean streaming, boolean spill, Consumer<String> streamingConsumer) throws Exception {
+        Flux<String> flowable = streaming ?
+            this.runMessages(runContext, this.tapCommand(runContext, false), spill)
+                .doOnNext(streamingConsumer) :
+            Flux.using(
+                () -> {
+                    this.run(runContext, this.tapCommand(runContext, true), new SingerLogDispatcher(runContext, metrics, null));
+
+                    return Files.newBufferedReader(this.workingDirectory.resolve(RAW_FILENAME), StandardCharsets.UTF_8);
+                },
+                reader -> Flux.fromStream(reader.lines()),
+                throwConsumer(BufferedReader::close)
+            );
 
         return flowable
-            .doOnNext(throwConsumer(this::rawData))
             .doOnNext(throwConsumer(line -> {
-                Map<String, Object> parsed = MAPPER.readValue(line, TYPE_REFERENCE);
+                Message message = MessageService.parse(line);
+
+                if (message.getType() == Message.Type.STATE && message.getValue() != null) {
+                    this.stateMessage(message.getValue());
+                    if (this.progressTracker != null) {
+                        this.progressTracker.state(message.getValue());
+                    }
+                } else if (message.getType() == Message.Type.RECORD && message.getStream() != null) {
+                    this.recordsCount.computeIfAbsent(message.getStream(), k -> new AtomicLong()).incrementAndGet();
+                    if (this.progressTracker != null) {
+                        this.progressTracker.record(message.getStream());
+                    }
+                    this.bytesCount.computeIfAbsent(message.getStream(), k -> new AtomicLong()).addAndGet(MessageService.size(line));
+                }
 
-                if (parsed.getOrDefault("type", "UNKNOWN").equals("STATE")) {
-                    this.stateMessage((Map<String, Object>) parsed.get("value"));
+                if (this.streamSplitter != null) {
+                    this.streamSplitter.accept(message, line);
                 }
             }))
             .count()
             .block();
     }
 
+    private Map<String, StreamStats> streamsStats() {
+        Map<String, StreamStats> stats = new TreeMap<>();
+
+        this.recordsCount.forEach((stream, count) -> stats.put(stream, StreamStats.builder()
+            .records(count.get())
+            .bytes(this.bytesCount.getOrDefault(stream, new AtomicLong()).get())
+            .build()
+        ));
+
+        return stats;
+    }
+
     public void rawData(String raw) throws IOException {
         if (this.rawSingerStream == null) {
-            File tempFile = File.createTempFile("message", ".json", workingDirectory.toFile());
-            this.rawSingerStream = Pair.of(tempFile, new FileOutputStream(tempFile));
+            Compression compression = this.rawCompression != null ? this.rawCompression : Compression.NONE;
+            File tempFile = File.createTempFile("message", CompressionService.extension(compression), workingDirectory.toFile());
+            this.rawSingerStream = Pair.of(tempFile, CompressionService.compress(new FileOutputStream(tempFile), compression));
+        }
+
+        this.rawSingerStream.getRight().write(raw.getBytes(StandardCharsets.UTF_8));
+        this.rawSingerStream.getRight().write('\n');
+    }
+
+    private File closeRawData() throws IOException {
+        if (this.rawSingerStream == null) {
+            this.rawData("");
+        }
+
+        this.rawSingerStream.getRight().close();
+
+        return this.rawSingerStream.getLeft();
+    }
+
+    /**
+     * A tracker of the selected streams with a row count, known by their stream name and their stream id.
+     */
+    private ProgressTracker progressTracker(Path catalog, Duration interval, RunContext runContext) throws IOException {
+        ProgressTracker progressTracker = new ProgressTracker(interval, runContext.logger());
+
+        CatalogService.forEach(catalog, discoverStream -> {
+            if (discoverStream.getMetadata() == null) {
+                return;
+            }
+
+            discoverStream.getMetadata()
+                .stream()
+                .filter(metadata -> metadata.getBreadcrumb().isEmpty() && metadata.getMetadata() != null)
+                .filter(metadata -> metadata.getMetadata().isSelected() && metadata.getMetadata().getRowCount() != null)
+                .findFirst()
+                .ifPresent(metadata -> progressTracker.expect(
+                    metadata.getMetadata().getRowCount(),
+                    discoverStream.getStream(),
+                    discoverStream.getTapStreamId()
+                ));
+        });
+
+        return progressTracker;
+    }
+
+    /**
+     * Run the discovery, or reuse a cached one, and return the path of the catalog discovered.
+     */
+    protected Path discover(RunContext runContext, String command) throws Exception {
+        Optional<Duration> ttl = runContext.render(this.discoveryCacheTtl).as(Duration.class);
+
+        if (ttl.isEmpty()) {
+            return this.runDiscover(runContext, command);
+        }
+
+        String fingerprint = this.discoveryFingerprint(runContext, command);
+        DiscoverCache discoverCache = this.discoverCache(runContext, fingerprint);
+        boolean refresh = runContext.render(this.discoveryRefresh).as(Boolean.class).orElse(false);
+
+        // the last catalog discovered was too large to be cached, a previous one must not be reused
+        if (discoverCache != null && discoverCache.getDiscoveredAt() == null) {
+            discoverCache = null;
+        }
+
+        if (discoverCache != null &&
+            !refresh &&
+            !discoverCache.getDiscoveredAt().plus(ttl.get()).isBefore(Instant.now())
+        ) {
+            Path discover = this.cachedDiscovery(runContext, fingerprint, workingDirectory.resolve("discover.json"));
+
+            if (discover != null) {
+                runContext.logger().info("Using the catalog cached for '{}'", fingerprint);
+                this.metric(runContext, Counter.of("discovery.cache.hit", 1));
+
+                return discover;
+            }
+        }
+
+        this.metric(runContext, Counter.of("discovery.cache.miss", 1));
+
+        // a partial discovery keeps the discovery time of the cached catalog, only a full discovery renews it
+        Path discover = null;
+        Instant discoveredAt = Instant.now();
+
+        if (discoverCache != null && !refresh && runContext.render(this.incrementalDiscovery).as(Boolean.class).orElse(false)) {
+            Path cached = this.cachedDiscovery(runContext, fingerprint, workingDirectory.resolve("discover-cached.json"));
+
+            if (cached != null) {
+                discover = this.incrementalDiscover(runContext, command, cached);
+                discoveredAt = discoverCache.getDiscoveredAt();
+            }
+        }
+
+        if (discover == null) {
+            discover = this.runDiscover(runContext, command);
+            discoveredAt = Instant.now();
+        }
+
+        long size = Files.size(discover);
+        long maxSize = runContext.render(this.discoveryCacheMaxSize).as(Long.class).orElseThrow();
+        boolean cacheable = size <= maxSize;
+
+        if (cacheable) {
+            runContext.stateStore().putState(DISCOVERY_STATE_NAME, fingerprint + ".json", null, Files.readAllBytes(discover));
+        } else {
+            runContext.logger().warn("The catalog discovered is {} bytes, over the {} bytes of 'discoveryCacheMaxSize', it is not cached", size, maxSize);
+        }
+
+        runContext.stateStore().putState(
+            DISCOVERY_STATE_NAME,
+            fingerprint + ".meta.json",
+            null,
+            MAPPER.writeValueAsBytes(DiscoverCache.builder()
+                .discoveredAt(cacheable ? discoveredAt : null)
+                .build()
+            )
+        );
+
+        return discover;
+    }
+
+    /**
+     * Discover only the schemas of the streams configured and merge them in the cached catalog.
+     *
+     * @return the merged catalog, or null if a full discovery is needed
+     */
+    private Path incrementalDiscover(RunContext runContext, String command, Path cached) throws Exception {
+        Set<String> streams = new HashSet<>();
+        for (StreamsConfiguration streamsConfiguration : this.streamsConfigurations) {
+            if (streamsConfiguration.getStream() != null) {
+                streams.add(streamsConfiguration.getStream());
+            } else if (Boolean.TRUE.equals(streamsConfiguration.getSelected())) {
+                return null;
+            }
+        }
+
+        if (streams.isEmpty()) {
+            return null;
+        }
+
+        Set<String> schemas = CatalogService.schemas(cached, streams, this::discoverySchema);
+        if (schemas == null) {
+            return null;
+        }
+
+        Map<String, Object> filter = this.discoveryFilter(schemas);
+        if (filter.isEmpty()) {
+            return null;
         }
 
-        this.rawSingerStream.getRight().write((raw + "\n").getBytes(StandardCharsets.UTF_8));
+        runContext.logger().info("Discovering the schemas {} only", schemas);
+
+        Path partial;
+        this.discoveryFilter = filter;
+        try {
+            partial = this.runDiscover(runContext, command);
+        } finally {
+            this.discoveryFilter = null;
+        }
+
+        Path merged = workingDirectory.resolve("discover-merged.json");
+        CatalogService.merge(cached, partial, discoverStream -> schemas.contains(this.discoverySchema(discoverStream)), merged);
+
+        return merged;
+    }
+
+    /**
+     * The connector configuration restricting the discovery to some schemas, empty if the connector can't filter its
+     * discovery.
+     */
+    protected Map<String, Object> discoveryFilter(Set<String> schemas) {
+        return Map.of();
     }
 
-    protected DiscoverStreams discover(RunContext runContext, String command) throws Exception {
+    /**
+     * The schema (or database) of a discovered stream, as expected by {@link #discoveryFilter(Set)}.
+     */
+    protected String discoverySchema(DiscoverStream discoverStream) {
+        return CatalogService.schema(discoverStream);
+    }
+
+    @Override
+    protected void configSetupCommands(RunContext runContext) throws IllegalVariableEvaluationException, IOException {
+        if (this.discoveryFilter == null) {
+            super.configSetupCommands(runContext);
+            return;
+        }
+
+        Map<String, Object> configuration = new HashMap<>(this.configuration(runContext));
+        configuration.putAll(this.discoveryFilter);
+
+        this.writeSingerFiles("config.json", configuration);
+    }
+
+    private Path runDiscover(RunContext runContext, String command) throws Exception {
         String discoverFileName = "discover.json";
         this.run(
             runContext,
-            "./bin/" + command + " --config config.json --discover > " + discoverFileName,
+            this.executable(runContext, command) + " --config config.json --discover > " + discoverFileName,
             new DefaultLogConsumer(runContext)
         );
 
-        DiscoverStreams discoverStreams = MAPPER.readValue(
-            workingDirectory.resolve(discoverFileName).toFile(),
-            DiscoverStreams.class
+        return workingDirectory.resolve(discoverFileName);
+    }
+
+    private DiscoverCache discoverCache(RunContext runContext, String fingerprint) throws Exception {
+        try (InputStream inputStream = runContext.stateStore().getState(DISCOVERY_STATE_NAME, fingerprint + ".meta.json", null)) {
+            return MAPPER.readValue(inputStream, DiscoverCache.class);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private Path cachedDiscovery(RunContext runContext, String fingerprint, Path discover) throws Exception {
+        try (InputStream inputStream = runContext.stateStore().getState(DISCOVERY_STATE_NAME, fingerprint + ".json", null)) {
+            Files.copy(inputStream, discover, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+
+        return discover;
+    }
+
+    /**
+     * A hash of the discovery command, of the installed packages and of the rendered configuration, so that secrets
+     * are never stored in clear text.
+     */
+    private String discoveryFingerprint(RunContext runContext, String command) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+        digest.update((command + "\n" + this.environmentKey(runContext) + "\n").getBytes(StandardCharsets.UTF_8));
+        digest.update(MAPPER.writer()
+            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .writeValueAsBytes(this.configuration(runContext))
         );
 
-        return SelectedService.fill(discoverStreams, this.streamsConfigurations);
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     protected String catalogName() {
@@ -167,14 +599,14 @@ public abstract class AbstractPythonTap extends AbstractPythonSinger implements
             (this.features().contains(Feature.PROPERTIES) ? "properties" : null);
     }
 
-    private String tapCommand(RunContext runContext) throws IllegalVariableEvaluationException {
+    private String tapCommand(RunContext runContext, boolean redirectToFile) throws IllegalVariableEvaluationException {
         String catalogName = this.catalogName();
 
-        return "./bin/" + this.finalCommand(runContext) +
+        return this.executable(runContext, this.finalCommand(runContext)) +
             " --config ./" + "config.json " +
             (catalogName != null ? "--" + catalogName + " ./" + catalogName + ".json " : "") +
             (this.features().contains(Feature.STATE) ? "--state state.json" : "") +
-            " > raw.jsonl";
+            (redirectToFile ? " > " + RAW_FILENAME : "");
     }
 
     @Builder
@@ -187,9 +619,30 @@ public abstract class AbstractPythonTap extends AbstractPythonSinger implements
         @PluginProperty(additionalProperties = URI.class)
         private final URI raw;
 
+        @Schema(deprecated = true,
+            title = "Raw singer streams split by stream",
+            description = "Only filled when `splitStreams` is enabled. The key corresponds to the name of the stream"
+        )
+        @PluginProperty(additionalProperties = URI.class)
+        private final Map<String, URI> rawStreams;
+
         @Schema(deprecated = true,
             title = "Counter of stream items"
         )
         private final Long count;
+
+        @Schema(deprecated = true,
+            title = "Statistics of RECORD messages by stream",
+            description = "The key corresponds to the name of the stream"
+        )
+        @PluginProperty(additionalProperties = StreamStats.class)
+        private final Map<String, StreamStats> streams;
+
+        @Schema(deprecated = true,
+            title = "Duration of each phase of the task",
+            description = "The `pip` phase is included in the `discover` and `sync` phases"
+        )
+        @PluginProperty(additionalProperties = Duration.class)
+        private final Map<String, Duration> phases;
     }
 }
@@ -17,6 +17,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 
@@ -114,6 +115,11 @@ public class PipelinewiseOracle extends AbstractPythonTap implements RunnableTas
         return builder.build();
     }
 
+    @Override
+    protected Map<String, Object> discoveryFilter(Set<String> schemas) {
+        return Map.of("filter_schemas", String.join(",", schemas));
+    }
+
     @Override
     public Property<List<String>> pipPackages() {
         return Property.ofValue(Collections.singletonList("pipelinewise-tap-oracle"));
@@ -16,6 +16,7 @@ import jakarta.validation.constraints.NotNull;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @SuperBuilder
 @ToString
@@ -119,12 +120,17 @@ public class PipelinewisePostgres extends AbstractPythonTap implements RunnableT
 
         var filters = runContext.render(this.filterSchemas).asList(String.class);
         if (!filters.isEmpty()) {
-            builder.put("filter_dbs", String.join(",", filters));
+            builder.put("filter_schemas", String.join(",", filters));
         }
 
         return builder.build();
     }
 
+    @Override
+    protected Map<String, Object> discoveryFilter(Set<String> schemas) {
+        return Map.of("filter_schemas", String.join(",", schemas));
+    }
+
     @Override
     public Property<List<String>> pipPackages() {
         return Property.ofValue(List.of("pipelinewise-tap-postgres"));
@@ -1,21 +1,26 @@
 package io.kestra.plugin.singer.targets;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
 import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
 import io.kestra.plugin.singer.AbstractPythonSinger;
+import io.kestra.plugin.singer.services.CompressionService;
+import io.kestra.plugin.singer.services.NamedPipe;
+import io.kestra.plugin.singer.services.StateCheckpointer;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
-import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -34,59 +39,144 @@ public abstract class AbstractPythonTarget extends AbstractPythonSinger {
     };
 
     @Schema(deprecated = true,
-        title = "The raw data from a tap."
+        title = "The raw data from a tap.",
+        description = "Gzip compressed raw data are detected and decompressed on the fly. Required, unless the target " +
+            "runs in a `Pipeline` task."
     )
-    @NotNull
     @Valid
     private Property<String> from;
 
+    @Schema(deprecated = true,
+        title = "Stream the raw data to the target while it is read from internal storage.",
+        description = "By default, the raw data are copied to a local file before starting the target. When enabled, " +
+            "they are written to a named pipe read by the target, so that loading starts on the first byte without " +
+            "any local copy. It requires `mkfifo` on the worker and a task runner sharing the working directory " +
+            "filesystem with the worker (process or Docker on Linux)."
+    )
+    @Builder.Default
+    private Property<Boolean> streaming = Property.ofValue(false);
+
+    @Schema(deprecated = true,
+        title = "Save the state every given number of STATE messages while the target is running.",
+        description = "Targets emit a STATE message once the records before it are loaded, so a failed sync retried " +
+            "resumes from the last state saved instead of the one of the previous execution."
+    )
+    private Property<Integer> checkpointStates;
+
+    @Schema(deprecated = true,
+        title = "Save the state at most once per interval while the target is running.",
+        description = "The state is saved on the first STATE message received after the interval."
+    )
+    private Property<Duration> checkpointInterval;
+
+    @Getter(AccessLevel.NONE)
+    private transient Path input;
+
+    @Override
+    protected String role() {
+        return "target";
+    }
+
+    /**
+     * Run the task reading the raw singer stream from a local file or a named pipe instead of {@code from}, so that
+     * its own outputs, like the files generated by the file targets, are still produced.
+     */
+    public io.kestra.core.models.tasks.Output run(RunContext runContext, Path input) throws Exception {
+        if (!(this instanceof RunnableTask<?> runnableTask)) {
+            throw new IllegalStateException("Invalid target '" + this.getType() + "', it must be a runnable task");
+        }
+
+        this.input = input;
+
+        return runnableTask.run(runContext);
+    }
+
     protected AbstractPythonTarget.Output runTarget(RunContext runContext) throws Exception {
+        if (this.input != null) {
+            return this.runTarget(runContext, this.input);
+        }
+
         // from
-        URI from = new URI(runContext.render(this.from).as(String.class).orElseThrow());
+        URI from = new URI(runContext.render(this.from).as(String.class)
+            .orElseThrow(() -> new IllegalArgumentException("The 'from' property is required")));
+
+        if (runContext.render(this.streaming).as(Boolean.class).orElse(false)) {
+            try (NamedPipe namedPipe = NamedPipe.create(runContext.workingDir().path().resolve("input.jsonl"))) {
+                namedPipe.write(CompressionService.decompress(runContext.storage().getFile(from)));
+                AbstractPythonTarget.Output output = this.runTarget(runContext, namedPipe.getPath());
+                namedPipe.await();
+
+                return output;
+            }
+        }
+
         Path tempFile = runContext.workingDir().createTempFile();
-        Files.copy(runContext.storage().getFile(from), tempFile, StandardCopyOption.REPLACE_EXISTING);
+        this.phase(runContext, "download", () -> {
+            try (InputStream inputStream = CompressionService.decompress(runContext.storage().getFile(from))) {
+                return Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+
+        return this.runTarget(runContext, tempFile);
+    }
 
+    /**
+     * Run the target reading the raw singer stream from a local file or a named pipe.
+     */
+    protected AbstractPythonTarget.Output runTarget(RunContext runContext, Path input) throws Exception {
         // sync
-        this.tapsSync(tempFile, runContext);
+        this.phase(runContext, "sync", () -> {
+            this.tapsSync(input, runContext);
+            return null;
+        });
         this.saveSingerMetrics(runContext);
 
         // outputs
         AbstractPythonTarget.Output.OutputBuilder builder = AbstractPythonTarget.Output.builder();
 
         if (!this.stateRecords.isEmpty()) {
-            builder.stateKey(this.saveState(runContext, runContext.render(this.stateName).as(String.class).orElseThrow(), this.stateRecords));
+            builder.stateKey(this.phase(
+                runContext,
+                "state",
+                () -> this.saveState(runContext, runContext.render(this.stateName).as(String.class).orElseThrow(), this.stateRecords)
+            ));
         }
 
-        return builder.build();
+        return builder
+            .phases(this.phases())
+            .build();
     }
 
     protected void tapsSync(Path tempFile, RunContext runContext) throws Exception {
         List<String> commands = new ArrayList<>(List.of("cat " + tempFile.toAbsolutePath()));
 
         commands.add("|");
-        commands.add("./bin/" + this.finalCommand(runContext) + " --config config.json");
+        commands.add(this.executable(runContext, this.finalCommand(runContext)) + " --config config.json");
 
         this.runSinger(commands, runContext);
     }
 
     protected void  runSinger(List<String> commands, RunContext runContext) throws Exception {
-        Flux
-            .<String>create(
-                throwConsumer(emitter -> {
-                    this.run(
-                        runContext,
-                        String.join(" ", commands),
-                        new SingerLogDispatcher(runContext, metrics, emitter::next)
-                    );
-
-                    emitter.complete();
-                }),
-                FluxSink.OverflowStrategy.BUFFER
-            )
-            .map(throwFunction(s -> MAPPER.readValue(s, TYPE_REFERENCE)))
-            .doOnNext(throwConsumer(this::stateMessage))
-            .collectList()
-            .block();
+        String stateName = runContext.render(this.stateName).as(String.class).orElseThrow();
+
+        StateCheckpointer checkpointer = new StateCheckpointer(
+            runContext.render(this.checkpointStates).as(Integer.class).orElse(null),
+            runContext.render(this.checkpointInterval).as(Duration.class).orElse(null),
+            throwConsumer(state -> this.saveState(runContext, stateName, state)),
+            runContext.logger()
+        );
+
+        try {
+            this.runMessages(runContext, String.join(" ", commands))
+                .map(throwFunction(s -> MAPPER.readValue(s, TYPE_REFERENCE)))
+                .doOnNext(throwConsumer(this::stateMessage))
+                .doOnNext(state -> checkpointer.accept(this.stateRecords))
+                .then()
+                .block();
+        } finally {
+            checkpointer.close();
+            this.metric(runContext, Counter.of("state.checkpoints", checkpointer.getCheckpoints()));
+        }
     }
 
     @Builder
@@ -96,5 +186,12 @@ public abstract class AbstractPythonTarget extends AbstractPythonSinger {
             title = "Key of the state in KV Store"
         )
         private final String stateKey;
+
+        @Schema(deprecated = true,
+            title = "Duration of each phase of the task",
+            description = "The `pip` phase is included in the `sync` phase"
+        )
+        @PluginProperty(additionalProperties = Duration.class)
+        private final Map<String, Duration> phases;
     }
 }
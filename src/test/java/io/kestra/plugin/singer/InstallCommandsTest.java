@@ -0,0 +1,72 @@
+package io.kestra.plugin.singer;
+
+import com.google.common.collect.ImmutableMap;
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.IdUtils;
+import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.singer.models.Installer;
+import io.kestra.plugin.singer.targets.Json;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@KestraTest
+class InstallCommandsTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void uv() throws Exception {
+        Json task = this.task(Installer.UV, null);
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+
+        List<String> commands = task.installCommands(runContext, ".").toList();
+
+        assertThat(commands, hasItem(startsWith("pip install uv")));
+        assertThat(commands, hasItem(startsWith("python -m uv pip install --target . ")));
+    }
+
+    @Test
+    void uvWheelhouse(@TempDir Path wheelhouse) throws Exception {
+        Files.createFile(wheelhouse.resolve("uv-0.4.0-py3-none-manylinux_2_17_x86_64.whl"));
+
+        Json task = this.task(Installer.UV, wheelhouse);
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+
+        List<String> commands = task.installCommands(runContext, ".").toList();
+
+        assertThat(commands, hasItem(startsWith("pip install --no-index --find-links " + wheelhouse.toAbsolutePath() + " uv")));
+        assertThat(commands, hasItem(startsWith("python -m uv pip install --target . --no-index")));
+    }
+
+    @Test
+    void uvWheelhouseWithoutUv(@TempDir Path wheelhouse) throws Exception {
+        Json task = this.task(Installer.UV, wheelhouse);
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+
+        List<String> commands = task.installCommands(runContext, ".").toList();
+
+        // uv can't be installed offline, pip is used instead
+        assertThat(commands, everyItem(not(containsString("uv"))));
+        assertThat(commands, contains(startsWith("pip install --target . --no-index --find-links " + wheelhouse.toAbsolutePath())));
+    }
+
+    private Json task(Installer installer, Path wheelhouse) {
+        return Json.builder()
+            .id(IdUtils.create())
+            .type(Json.class.getName())
+            .installer(Property.ofValue(installer))
+            .wheelhouse(wheelhouse != null ? Property.ofValue(wheelhouse.toString()) : null)
+            .build();
+    }
+}
@@ -0,0 +1,126 @@
+package io.kestra.plugin.singer;
+
+import com.google.common.collect.ImmutableMap;
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.IdUtils;
+import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.singer.models.DiscoverMetadata;
+import io.kestra.plugin.singer.models.StreamStats;
+import io.kestra.plugin.singer.models.StreamsConfiguration;
+import io.kestra.plugin.singer.taps.PipelinewiseMysql;
+import io.kestra.plugin.singer.targets.GenericTarget;
+import io.kestra.plugin.singer.targets.Json;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class PipelineTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void run() throws Exception {
+        String stateName = IdUtils.create();
+
+        Json target = Json.builder()
+            .id(IdUtils.create())
+            .type(Json.class.getName())
+            .stateName(Property.ofValue(stateName))
+            .build();
+
+        Pipeline task = Pipeline.builder()
+            .id(IdUtils.create())
+            .type(Pipeline.class.getName())
+            .tap(this.tap(stateName))
+            .target(target)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        Pipeline.Output output = task.run(runContext);
+
+        assertThat(runContext.metrics().stream().filter(r -> r.getName().equals("singer.record.count") && r.getTags().containsValue("category")).findFirst().get().getValue(), is(8D));
+        assertThat(runContext.metrics().stream().filter(r -> r.getName().equals("singer.record.count") && r.getTags().containsValue("region")).findFirst().get().getValue(), is(4D));
+
+        assertThat(output.getStreams().size(), is(2));
+        assertThat(output.getStreams().values().stream().mapToLong(StreamStats::getRecords).sum(), is(12L));
+        assertThat(output.getPhases().keySet(), hasItems("tap.sync", "target.sync"));
+        assertThat(
+            runContext.metrics().stream().filter(r -> r.getName().equals("singer.phase.sync")).map(r -> r.getTags().get("role")).toList(),
+            containsInAnyOrder("tap", "target")
+        );
+
+        Json.Output targetOutput = (Json.Output) output.getTarget();
+        assertThat(targetOutput.getUris().size(), is(2));
+        assertThat(targetOutput.getUris().keySet(), containsInAnyOrder("Northwind-Region", "Northwind-Category"));
+
+        assertThat(targetOutput.getStateKey(), not((nullValue())));
+    }
+
+    @Test
+    void targetFailed() {
+        String stateName = IdUtils.create();
+
+        GenericTarget target = GenericTarget.builder()
+            .id(IdUtils.create())
+            .type(GenericTarget.class.getName())
+            .pipPackages(Property.ofValue(List.of()))
+            .command(Property.ofValue("target-missing"))
+            .configs(Property.ofValue(Map.of()))
+            .stateName(Property.ofValue(stateName))
+            .build();
+
+        Pipeline task = Pipeline.builder()
+            .id(IdUtils.create())
+            .type(Pipeline.class.getName())
+            .tap(this.tap(stateName))
+            .target(target)
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        Exception exception = assertThrows(Exception.class, () -> task.run(runContext));
+
+        // the failure of the target is reported, not the one of the tap writing to the cancelled buffer
+        assertThat(exception.getMessage(), containsString("exit code 127"));
+        assertThat(exception.getMessage(), not(containsString("Buffer reader is gone")));
+    }
+
+    private PipelinewiseMysql tap(String stateName) {
+        return PipelinewiseMysql.builder()
+            .id(IdUtils.create())
+            .type(PipelinewiseMysql.class.getName())
+            .host("172.17.0.1")
+            .username("root")
+            .password(Property.ofValue("mysql_passwd"))
+            .port(Property.ofValue(63306))
+            .stateName(Property.ofValue(stateName))
+            .streamsConfigurations(Arrays.asList(
+                StreamsConfiguration.builder()
+                    .stream("Category")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.INCREMENTAL)
+                    .replicationKeys("categoryId")
+                    .build(),
+                StreamsConfiguration.builder()
+                    .stream("Region")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.FULL_TABLE)
+                    .build(),
+                StreamsConfiguration.builder()
+                    .selected(false)
+                    .propertiesPattern(Collections.singletonList("description"))
+                    .build()
+            ))
+            .build();
+    }
+}
@@ -0,0 +1,141 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.singer.models.DiscoverStream;
+import io.kestra.plugin.singer.models.DiscoverStreams;
+import io.kestra.plugin.singer.models.StreamsConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+class CatalogServiceTest {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    @Test
+    void select(@TempDir Path directory) throws IOException, URISyntaxException {
+        Path discover = Path.of(Objects.requireNonNull(CatalogServiceTest.class.getClassLoader().getResource("properties/postgres.json")).toURI());
+        Path catalog = directory.resolve("catalog.json");
+
+        List<StreamsConfiguration> configurations = Collections.singletonList(StreamsConfiguration.builder()
+            .stream("customer")
+            .build()
+        );
+
+        long count = CatalogService.select(discover, catalog, SelectedService.compile(configurations));
+
+        DiscoverStreams expected = SelectedService.fill(MAPPER.readValue(discover.toFile(), DiscoverStreams.class), configurations);
+
+        assertThat(count, is(13L));
+        assertThat(MAPPER.readTree(catalog.toFile()), is(MAPPER.valueToTree(expected)));
+    }
+
+    @Test
+    void prune(@TempDir Path directory) throws IOException, URISyntaxException {
+        Path discover = Path.of(Objects.requireNonNull(CatalogServiceTest.class.getClassLoader().getResource("properties/postgres.json")).toURI());
+        Path catalog = directory.resolve("catalog.json");
+
+        long count = CatalogService.select(
+            discover,
+            catalog,
+            SelectedService.compile(Arrays.asList(
+                StreamsConfiguration.builder()
+                    .stream("customer")
+                    .selected(true)
+                    .build(),
+                StreamsConfiguration.builder()
+                    .stream("customer")
+                    .propertiesPattern(Collections.singletonList("^.*name.*$"))
+                    .selected(false)
+                    .build()
+            )),
+            true
+        );
+
+        DiscoverStreams pruned = MAPPER.readValue(catalog.toFile(), DiscoverStreams.class);
+
+        assertThat(count, is(1L));
+        assertThat(pruned.getStreams().size(), is(1));
+        assertThat(pruned.getStreams().get(0).getStream(), is("customer"));
+        assertThat(pruned.getStreams().get(0).getMetadata().size(), is(10));
+        assertThat(((Map<?, ?>) pruned.getStreams().get(0).getSchema().get("properties")).containsKey("companyname"), is(false));
+        assertThat(((Map<?, ?>) pruned.getStreams().get(0).getSchema().get("properties")).containsKey("custid"), is(true));
+    }
+
+    @Test
+    void merge(@TempDir Path directory) throws IOException, URISyntaxException {
+        Path cached = Path.of(Objects.requireNonNull(CatalogServiceTest.class.getClassLoader().getResource("properties/postgres.json")).toURI());
+        Path partial = this.partial(cached, directory);
+        Path merged = directory.resolve("merged.json");
+
+        CatalogService.merge(cached, partial, discoverStream -> discoverStream.getStream().equals("customer"), merged);
+
+        List<DiscoverStream> streams = MAPPER.readValue(merged.toFile(), DiscoverStreams.class).getStreams();
+        List<String> expected = MAPPER.readValue(cached.toFile(), DiscoverStreams.class).getStreams()
+            .stream()
+            .map(DiscoverStream::getStream)
+            .filter(stream -> !stream.equals("customer"))
+            .collect(Collectors.toList());
+        expected.add("customer");
+
+        // the streams not replaced keep their order, and the discovered ones are added at the end
+        assertThat(streams.stream().map(DiscoverStream::getStream).toList(), is(expected));
+        assertThat(streams.get(12).getSchema(), is(Map.of("type", "object")));
+        assertThat(streams.get(0).getSchema().get("properties"), notNullValue());
+    }
+
+    @Test
+    void incrementalDiscover(@TempDir Path directory) throws IOException, URISyntaxException {
+        Path cached = Path.of(Objects.requireNonNull(CatalogServiceTest.class.getClassLoader().getResource("properties/postgres.json")).toURI());
+
+        assertThat(CatalogService.schemas(cached, Set.of("customer", "product"), CatalogService::schema), is(Set.of("public")));
+        assertThat(CatalogService.schemas(cached, Set.of("customer", "unknown"), CatalogService::schema), nullValue());
+        assertThat(CatalogService.schemas(cached, Set.of("customer"), discoverStream -> null), nullValue());
+
+        // every cached stream of the schemas discovered again is replaced by the partial discovery
+        Set<String> schemas = CatalogService.schemas(cached, Set.of("customer"), CatalogService::schema);
+        Path partial = this.partial(cached, directory);
+        Path merged = directory.resolve("merged.json");
+
+        CatalogService.merge(cached, partial, discoverStream -> schemas.contains(CatalogService.schema(discoverStream)), merged);
+
+        List<DiscoverStream> streams = MAPPER.readValue(merged.toFile(), DiscoverStreams.class).getStreams();
+
+        assertThat(streams.size(), is(1));
+        assertThat(streams.get(0).getStream(), is("customer"));
+        assertThat(streams.get(0).getSchema(), is(Map.of("type", "object")));
+    }
+
+    /**
+     * A partial discovery with only the customer stream, with another schema.
+     */
+    private Path partial(Path cached, Path directory) throws IOException {
+        DiscoverStream customer = MAPPER.readValue(cached.toFile(), DiscoverStreams.class).getStreams()
+            .stream()
+            .filter(discoverStream -> discoverStream.getStream().equals("customer"))
+            .findFirst()
+            .orElseThrow();
+
+        Path partial = directory.resolve("partial.json");
+        MAPPER.writeValue(partial.toFile(), new DiscoverStreams(List.of(customer.withSchema(Map.of("type", "object")))));
+
+        return partial;
+    }
+}
@@ -0,0 +1,67 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Compression;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class CompressionServiceTest {
+    private static final String CONTENT = "{\"type\": \"RECORD\", \"stream\": \"category\", \"record\": {\"id\": 1}}\n" +
+        "{\"type\": \"STATE\", \"value\": {\"currently_syncing\": null}}\n";
+
+    @Test
+    void roundTrip() throws IOException {
+        for (Compression compression : Compression.values()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (OutputStream compressed = CompressionService.compress(outputStream, compression)) {
+                compressed.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            }
+
+            try (InputStream inputStream = CompressionService.decompress(new ByteArrayInputStream(outputStream.toByteArray()))) {
+                assertThat(IOUtils.toString(inputStream, StandardCharsets.UTF_8), is(CONTENT));
+            }
+        }
+    }
+
+    @Test
+    void plain() throws IOException {
+        try (InputStream inputStream = CompressionService.decompress(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)))) {
+            assertThat(IOUtils.toString(inputStream, StandardCharsets.UTF_8), is(CONTENT));
+        }
+
+        try (InputStream inputStream = CompressionService.decompress(new ByteArrayInputStream(new byte[0]))) {
+            assertThat(inputStream.read(), is(-1));
+        }
+
+        // a single byte of the gzip magic number is not enough to be detected as compressed
+        try (InputStream inputStream = CompressionService.decompress(new ByteArrayInputStream(new byte[]{0x1f}))) {
+            assertThat(inputStream.read(), is(0x1f));
+            assertThat(inputStream.read(), is(-1));
+        }
+    }
+
+    @Test
+    void file(@TempDir Path directory) throws IOException {
+        File file = directory.resolve("raw.jsonl").toFile();
+        Files.writeString(file.toPath(), CONTENT);
+
+        assertThat(CompressionService.compress(file, Compression.NONE), is(file));
+
+        File compressed = CompressionService.compress(file, Compression.GZIP);
+
+        assertThat(compressed.getName(), endsWith(".json.gz"));
+        assertThat(compressed.length(), not(is(file.length())));
+
+        try (InputStream inputStream = CompressionService.decompress(new FileInputStream(compressed))) {
+            assertThat(IOUtils.toString(inputStream, StandardCharsets.UTF_8), is(CONTENT));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Metric;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class LogParserTest {
+    @Test
+    void metric() {
+        List<Metric> metrics = new ArrayList<>();
+        LogParser logParser = new LogParser(LoggerFactory.getLogger(LogParserTest.class), metrics::add);
+
+        logParser.accept("{\"asctime\": \"2024-01-01 00:00:00,000\", \"name\": \"tap\", \"levelname\": \"INFO\", " +
+            "\"message\": \"METRIC: {\\\"type\\\": \\\"counter\\\", \\\"metric\\\": \\\"record_count\\\", \\\"value\\\": 12, " +
+            "\\\"tags\\\": {\\\"endpoint\\\": \\\"users\\\"}}\"}");
+
+        assertThat(metrics.size(), is(1));
+        assertThat(metrics.get(0).getType(), is(Metric.Type.counter));
+        assertThat(metrics.get(0).getMetric(), is("record_count"));
+        assertThat(metrics.get(0).getValue(), is(12D));
+        assertThat(metrics.get(0).getTags(), is(Map.of("endpoint", "users")));
+    }
+
+    @Test
+    void log() {
+        List<Metric> metrics = new ArrayList<>();
+        LogParser logParser = new LogParser(LoggerFactory.getLogger(LogParserTest.class), metrics::add);
+
+        logParser.accept("{\"asctime\": \"2024-01-01 00:00:00,000\", \"name\": \"tap\", \"levelname\": \"INFO\", \"message\": \"METRIC: {\", \"extra\": [1]}");
+        logParser.accept("Traceback (most recent call last):");
+        logParser.accept("{\"levelname\": \"DEBUG\", \"message\": \"page fetched\"}");
+
+        assertThat(metrics.size(), is(0));
+    }
+}
@@ -0,0 +1,154 @@
+package io.kestra.plugin.singer.services;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.kestra.core.utils.Rethrow.throwSupplier;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MessageBufferTest {
+    @Test
+    void spill(@TempDir Path directory) throws Exception {
+        MessageBuffer buffer = new MessageBuffer(10, directory);
+
+        buffer.put("aaaaa");
+        buffer.put("bbbbb");
+        buffer.put("ccccc");
+        buffer.put("ddddd");
+
+        assertThat(buffer.getSpilledCount(), is(2L));
+        assertThat(buffer.take(), is("aaaaa"));
+
+        // memory is not full anymore, but the message must follow the ones on disk
+        buffer.put("eeeee");
+
+        assertThat(buffer.getSpilledCount(), is(3L));
+        assertThat(buffer.take(), is("bbbbb"));
+        assertThat(buffer.take(), is("ccccc"));
+        assertThat(buffer.take(), is("ddddd"));
+        assertThat(buffer.take(), is("eeeee"));
+
+        // the spill file is deleted once drained, and the next messages are kept in memory
+        try (var files = Files.list(directory)) {
+            assertThat(files.count(), is(0L));
+        }
+
+        buffer.put("fffff");
+        buffer.complete();
+
+        assertThat(buffer.getSpilledCount(), is(3L));
+        assertThat(buffer.getSpilledBytes(), is(18L));
+        assertThat(buffer.take(), is("fffff"));
+        assertThat(buffer.take(), nullValue());
+
+        buffer.close();
+    }
+
+    @Test
+    void bytes(@TempDir Path directory) throws Exception {
+        MessageBuffer buffer = new MessageBuffer(4, directory);
+
+        buffer.put("éé");
+        buffer.put("a");
+        buffer.complete();
+
+        assertThat(buffer.getSpilledCount(), is(1L));
+        assertThat(IOUtils.toString(buffer, StandardCharsets.UTF_8), is("éé\na\n"));
+
+        buffer.close();
+    }
+
+    @Test
+    void blocking() throws Exception {
+        MessageBuffer buffer = new MessageBuffer(10);
+
+        buffer.put("aaaaa");
+        buffer.put("bbbbb");
+
+        CompletableFuture<Object> put = CompletableFuture.supplyAsync(throwSupplier(() -> {
+            buffer.put("ccccc");
+            return null;
+        }));
+
+        Thread.sleep(100);
+        assertThat(put.isDone(), is(false));
+
+        assertThat(buffer.take(), is("aaaaa"));
+        put.get(5, TimeUnit.SECONDS);
+
+        buffer.complete();
+
+        assertThat(buffer.take(), is("bbbbb"));
+        assertThat(buffer.take(), is("ccccc"));
+        assertThat(buffer.take(), nullValue());
+        assertThat(buffer.getSpilledCount(), is(0L));
+    }
+
+    @Test
+    void cancel() throws Exception {
+        MessageBuffer buffer = new MessageBuffer(10);
+
+        buffer.put("aaaaa");
+        buffer.put("bbbbb");
+
+        CompletableFuture<Object> put = CompletableFuture.supplyAsync(throwSupplier(() -> {
+            buffer.put("ccccc");
+            return null;
+        }));
+
+        Thread.sleep(100);
+        buffer.cancel();
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> put.get(5, TimeUnit.SECONDS));
+        assertThat(ExceptionUtils.getRootCause(exception), instanceOf(IOException.class));
+
+        assertThrows(IOException.class, () -> buffer.put("ddddd"));
+        assertThat(buffer.take(), nullValue());
+        assertThat(buffer.read(), is(-1));
+    }
+
+    @Test
+    void fail(@TempDir Path directory) throws Exception {
+        MessageBuffer buffer = new MessageBuffer(5, directory);
+
+        buffer.put("aaaaa");
+        buffer.put("bbbbb");
+        buffer.fail(new IllegalStateException("failed"));
+
+        // the messages written before the failure are consumed first
+        assertThat(buffer.take(), is("aaaaa"));
+        assertThat(buffer.take(), is("bbbbb"));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, buffer::take);
+        assertThat(exception.getMessage(), is("failed"));
+
+        buffer.close();
+    }
+
+    @Test
+    void failRead() throws Exception {
+        MessageBuffer buffer = new MessageBuffer(5);
+
+        buffer.put("aaaaa");
+        buffer.fail(new IllegalStateException("failed"));
+
+        byte[] bytes = new byte[6];
+        assertThat(buffer.read(bytes, 0, bytes.length), is(6));
+        assertThat(new String(bytes, StandardCharsets.UTF_8), is("aaaaa\n"));
+
+        IOException exception = assertThrows(IOException.class, buffer::read);
+        assertThat(exception.getCause().getMessage(), is("failed"));
+    }
+}
@@ -0,0 +1,55 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Message;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class MessageServiceTest {
+    @Test
+    void record() throws IOException {
+        Message message = MessageService.parse("{\"record\": {\"id\": 1, \"tags\": [\"a\", {\"b\": null}]}, \"type\": \"RECORD\", \"stream\": \"public-category\", \"time_extracted\": \"2021-01-01T00:00:00Z\"}");
+
+        assertThat(message.getType(), is(Message.Type.RECORD));
+        assertThat(message.getStream(), is("public-category"));
+        assertThat(message.getValue(), nullValue());
+        assertThat(message.getSchema(), nullValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void state() throws IOException {
+        Message message = MessageService.parse("{\"type\": \"STATE\", \"value\": {\"currently_syncing\": null, \"bookmarks\": {\"public-category\": {\"version\": 1}}}}");
+
+        assertThat(message.getType(), is(Message.Type.STATE));
+        assertThat(message.getStream(), nullValue());
+        assertThat(message.getValue().containsKey("currently_syncing"), is(true));
+        assertThat(((Map<String, Object>) message.getValue().get("bookmarks")).keySet(), contains("public-category"));
+    }
+
+    @Test
+    void schema() throws IOException {
+        Message message = MessageService.parse("{\"type\": \"SCHEMA\", \"stream\": \"public-category\", \"schema\": {\"type\": \"object\", \"properties\": {\"id\": {\"type\": \"integer\"}}}, \"key_properties\": [\"id\"]}");
+
+        assertThat(message.getType(), is(Message.Type.SCHEMA));
+        assertThat(message.getStream(), is("public-category"));
+        assertThat(message.getSchema().get("type"), is("object"));
+    }
+
+    @Test
+    void unknown() throws IOException {
+        assertThat(MessageService.parse("{\"type\": \"OTHER\", \"value\": 1}").getType(), is(Message.Type.UNKNOWN));
+        assertThat(MessageService.parse("[]").getType(), is(Message.Type.UNKNOWN));
+    }
+
+    @Test
+    void size() {
+        assertThat(MessageService.size("{\"a\": \"b\"}"), is(10L));
+        assertThat(MessageService.size("{\"a\": \"\u00e9\u20ac\ud83d\ude00\"}"), is((long) "{\"a\": \"\u00e9\u20ac\ud83d\ude00\"}".getBytes(StandardCharsets.UTF_8).length));
+    }
+}
@@ -0,0 +1,51 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class MetricAggregatorTest {
+    @Test
+    void aggregate() {
+        MetricAggregator aggregator = new MetricAggregator();
+
+        for (int i = 0; i < 1000; i++) {
+            aggregator.add(Metric.builder()
+                .type(Metric.Type.counter)
+                .metric("record_count")
+                .value(2D)
+                .tags(i % 2 == 0 ? Map.of("endpoint", "Users", "http_status_code", 200) : Map.of("endpoint", "users"))
+                .build()
+            );
+        }
+
+        aggregator.add(Metric.builder().type(Metric.Type.timer).metric("http_request_duration").value(0.2).tags(Map.of()).build());
+        aggregator.add(Metric.builder().type(Metric.Type.timer).metric("http_request_duration").value(2D).tags(Map.of()).build());
+
+        assertThat(aggregator.size(), is(2));
+
+        List<MetricAggregator.Snapshot> snapshots = aggregator.drain()
+            .stream()
+            .sorted(Comparator.comparing(snapshot -> snapshot.series().name()))
+            .toList();
+
+        assertThat(snapshots.get(0).series().name(), is("singer.http.request.duration"));
+        assertThat(snapshots.get(0).count(), is(2L));
+        assertThat(snapshots.get(0).min(), is(0.2));
+        assertThat(snapshots.get(0).max(), is(2D));
+        assertThat(snapshots.get(0).histogram()[3], is(1L));
+        assertThat(snapshots.get(0).histogram()[5], is(1L));
+
+        assertThat(snapshots.get(1).series().name(), is("singer.record.count"));
+        assertThat(snapshots.get(1).series().tags(), is(List.of("endpoint", "users")));
+        assertThat(snapshots.get(1).sum(), is(2000D));
+
+        assertThat(aggregator.drain().size(), is(0));
+    }
+}
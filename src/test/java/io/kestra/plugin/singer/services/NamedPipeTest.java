@@ -0,0 +1,92 @@
+package io.kestra.plugin.singer.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class NamedPipeTest {
+    // larger than the kernel pipe buffer, so that the writer blocks until the reader consumes it
+    private static final byte[] CONTENT = content(1024 * 1024);
+
+    @Test
+    void write(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("input.jsonl");
+
+        try (NamedPipe namedPipe = NamedPipe.create(path)) {
+            namedPipe.write(new ByteArrayInputStream(CONTENT));
+
+            // readAllBytes seeks on a FileInputStream, which a fifo does not support
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (InputStream inputStream = new FileInputStream(namedPipe.getPath().toFile())) {
+                inputStream.transferTo(outputStream);
+            }
+            assertThat(Arrays.equals(outputStream.toByteArray(), CONTENT), is(true));
+
+            namedPipe.await();
+        }
+
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @Test
+    void readerGone(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("input.jsonl");
+
+        try (NamedPipe namedPipe = NamedPipe.create(path)) {
+            namedPipe.write(new ByteArrayInputStream(CONTENT));
+
+            // the reader exits early, without reading the whole input
+            try (InputStream inputStream = new FileInputStream(namedPipe.getPath().toFile())) {
+                assertThat(inputStream.read(new byte[10]), greaterThan(0));
+            }
+
+            IOException exception = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IOException.class, namedPipe::await));
+            assertThat(exception.getMessage(), containsString("Unable to write the whole input"));
+        }
+
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @Test
+    void noReader(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("input.jsonl");
+
+        NamedPipe namedPipe = NamedPipe.create(path);
+        namedPipe.write(new ByteArrayInputStream(CONTENT));
+
+        // the writer is released even if the reader never opened the pipe, and the pipe is removed
+        assertTimeoutPreemptively(Duration.ofSeconds(10), namedPipe::close);
+
+        assertThat(Files.exists(path), is(false));
+    }
+
+    @Test
+    void createFailed(@TempDir Path directory) {
+        IOException exception = assertThrows(IOException.class, () -> NamedPipe.create(directory.resolve("missing").resolve("input.jsonl")));
+
+        assertThat(exception.getMessage(), containsString("Unable to create named pipe"));
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+
+        return content;
+    }
+}
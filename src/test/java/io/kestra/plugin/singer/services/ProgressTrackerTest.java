@@ -0,0 +1,112 @@
+package io.kestra.plugin.singer.services;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ProgressTrackerTest {
+    private static final Duration INTERVAL = Duration.ofMinutes(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Logger logger;
+    private Locale locale;
+
+    @BeforeEach
+    void setUp() {
+        this.logger = (Logger) LoggerFactory.getLogger(ProgressTrackerTest.class);
+        this.logger.setLevel(Level.INFO);
+        this.logger.addAppender(this.appender);
+        this.appender.start();
+
+        // a comma decimal separator must not change the logs
+        this.locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Locale.setDefault(this.locale);
+        this.logger.detachAppender(this.appender);
+    }
+
+    @Test
+    void progress() {
+        ProgressTracker tracker = new ProgressTracker(INTERVAL, this.logger, this.clock::get);
+        assertThat(tracker.isEmpty(), is(true));
+
+        tracker.expect(100_000, "category", "public-category");
+        tracker.expect(100_000, "region", null);
+        tracker.expect(10, "territory");
+        assertThat(tracker.isEmpty(), is(false));
+
+        // only the streams with records are reported
+        tracker.state(Map.of("currently_syncing", "public-category"));
+        this.records(tracker, "public-category", 500);
+        assertThat(this.report(tracker), contains(startsWith("Stream 'category': 500 / 100000 rows (0.5%), 8 rows/s")));
+
+        // the stream is finished once the tap syncs another one, even below its estimated row count
+        this.records(tracker, "category", 10);
+        tracker.state(Map.of("currently_syncing", "region"));
+        this.records(tracker, "region", 100);
+        assertThat(this.report(tracker), contains(startsWith("Stream 'region': 100 / 100000 rows (0.1%)")));
+
+        // an idle stream is not reported
+        assertThat(this.report(tracker), empty());
+
+        // nor a stream over its estimated row count
+        this.records(tracker, "territory", 20);
+        assertThat(this.report(tracker), empty());
+
+        this.records(tracker, "region", 1);
+        assertThat(this.report(tracker), contains(startsWith("Stream 'region': 101 / 100000 rows (0.1%)")));
+    }
+
+    @Test
+    void interval() {
+        ProgressTracker tracker = new ProgressTracker(INTERVAL, this.logger, this.clock::get);
+        tracker.expect(100_000, "category");
+
+        // the interval is not elapsed
+        this.clock.addAndGet(INTERVAL.toNanos() / 2);
+        this.records(tracker, "category", 5_000);
+        assertThat(this.appender.list, empty());
+
+        this.clock.addAndGet(INTERVAL.toNanos() / 2);
+        this.records(tracker, "category", 1_000);
+        assertThat(this.appender.list.size(), is(1));
+    }
+
+    private void records(ProgressTracker tracker, String stream, int count) {
+        for (int i = 0; i < count; i++) {
+            tracker.record(stream);
+        }
+    }
+
+    /**
+     * Move the clock past the interval and count enough messages of an unknown stream to check the progress once.
+     */
+    private List<String> report(ProgressTracker tracker) {
+        this.appender.list.clear();
+        this.clock.addAndGet(INTERVAL.toNanos());
+        this.records(tracker, "unknown", 1_000);
+
+        return this.appender.list.stream()
+            .map(ILoggingEvent::getFormattedMessage)
+            .toList();
+    }
+}
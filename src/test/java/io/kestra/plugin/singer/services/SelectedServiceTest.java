@@ -128,6 +128,28 @@ class SelectedServiceTest {
         assertThat(selectedMetadata(fill).count(), is(12L));
     }
 
+    @Test
+    void wildcard() throws IOException {
+        DiscoverStreams discoverStreams = discoverStreams();
+
+        DiscoverStreams fill = SelectedService.fill(
+            discoverStreams,
+            Arrays.asList(
+                StreamsConfiguration.builder()
+                    .selected(true)
+                    .build(),
+                StreamsConfiguration.builder()
+                    .stream("customer")
+                    .selected(false)
+                    .build()
+            )
+        );
+
+        assertThat(fill.getStreams().size(), is(13));
+        assertThat(selected(fill).count(), is(12L));
+        assertThat(selected(fill).anyMatch(discoverStream -> discoverStream.getStream().equals("customer")), is(false));
+    }
+
     private DiscoverStreams discoverStreams() throws IOException {
         String properties = IOUtils.toString(
             Objects.requireNonNull(SelectedServiceTest.class.getClassLoader().getResource("properties/postgres.json")),
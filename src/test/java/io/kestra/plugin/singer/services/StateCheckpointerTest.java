@@ -0,0 +1,93 @@
+package io.kestra.plugin.singer.services;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class StateCheckpointerTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateCheckpointerTest.class);
+
+    @Test
+    void states() {
+        List<Integer> written = new CopyOnWriteArrayList<>();
+
+        StateCheckpointer checkpointer = new StateCheckpointer(2, null, state -> written.add((Integer) state.get("n")), LOGGER);
+        for (int i = 1; i <= 5; i++) {
+            checkpointer.accept(Map.of("n", i));
+        }
+        checkpointer.close();
+
+        // only every second state is saved, and a state is skipped if the previous save is still running
+        assertThat(written, not(empty()));
+        assertThat(written, everyItem(is(oneOf(2, 4))));
+        assertThat(written.get(written.size() - 1), is(4));
+        assertThat(checkpointer.getCheckpoints(), is((long) written.size()));
+    }
+
+    @Test
+    void interval() throws InterruptedException {
+        List<Integer> written = new CopyOnWriteArrayList<>();
+
+        StateCheckpointer checkpointer = new StateCheckpointer(null, Duration.ofHours(1), state -> written.add((Integer) state.get("n")), LOGGER);
+        checkpointer.accept(Map.of("n", 1));
+        checkpointer.accept(Map.of("n", 2));
+        checkpointer.close();
+
+        assertThat(written, empty());
+
+        checkpointer = new StateCheckpointer(null, Duration.ofMillis(50), state -> written.add((Integer) state.get("n")), LOGGER);
+        Thread.sleep(100);
+        checkpointer.accept(Map.of("n", 1));
+        checkpointer.close();
+
+        assertThat(written, contains(1));
+    }
+
+    @Test
+    void disabled() {
+        List<Integer> written = new CopyOnWriteArrayList<>();
+
+        StateCheckpointer checkpointer = new StateCheckpointer(null, null, state -> written.add((Integer) state.get("n")), LOGGER);
+        for (int i = 1; i <= 5; i++) {
+            checkpointer.accept(Map.of("n", i));
+        }
+        checkpointer.close();
+
+        assertThat(written, empty());
+        assertThat(checkpointer.getCheckpoints(), is(0L));
+    }
+
+    @Test
+    void close() throws InterruptedException {
+        List<Object> written = new CopyOnWriteArrayList<>();
+
+        StateCheckpointer checkpointer = new StateCheckpointer(1, null, state -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+
+            written.add(state.get("n"));
+        }, LOGGER);
+
+        checkpointer.accept(Map.of("n", 1));
+        checkpointer.accept(Map.of("n", 2));
+        checkpointer.close();
+
+        // the final save of the task happens after the close, and no pending checkpoint can overwrite it
+        written.add("final");
+        Thread.sleep(500);
+
+        assertThat(written.get(written.size() - 1), is("final"));
+        assertThat(written, hasItem(2));
+    }
+}
@@ -0,0 +1,52 @@
+package io.kestra.plugin.singer.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.kestra.core.serializers.JacksonMapper;
+import io.kestra.plugin.singer.models.Compression;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class StateServiceTest {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson();
+
+    @Test
+    void merge() {
+        Map<String, Object> state = new HashMap<>();
+
+        StateService.merge(state, Map.of(
+            "currently_syncing", "customer",
+            "bookmarks", Map.of(
+                "customer", Map.of("version", 1, "last_pk_fetched", 10),
+                "orders", Map.of("lsn", 100)
+            )
+        ));
+        StateService.merge(state, Map.of(
+            "bookmarks", Map.of("customer", Map.of("version", 2))
+        ));
+
+        Map<?, ?> bookmarks = (Map<?, ?>) state.get("bookmarks");
+
+        assertThat(state.get("currently_syncing"), is("customer"));
+        assertThat(bookmarks.size(), is(2));
+        assertThat(bookmarks.get("customer"), is(Map.of("version", 2)));
+        assertThat(bookmarks.get("orders"), is(Map.of("lsn", 100)));
+    }
+
+    @Test
+    void serialize() throws IOException {
+        Map<String, Object> state = Map.of("bookmarks", Map.of("orders", Map.of("lsn", 100)));
+
+        for (Compression compression : Compression.values()) {
+            byte[] bytes = StateService.serialize(MAPPER, state, compression);
+
+            assertThat(StateService.read(new ByteArrayInputStream(bytes)), is(MAPPER.writeValueAsString(state)));
+        }
+    }
+}
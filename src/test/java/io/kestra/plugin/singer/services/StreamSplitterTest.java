@@ -0,0 +1,72 @@
+package io.kestra.plugin.singer.services;
+
+import io.kestra.plugin.singer.models.Compression;
+import io.kestra.plugin.singer.models.Message;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class StreamSplitterTest {
+    private static final List<String> LINES = List.of(
+        "{\"type\": \"SCHEMA\", \"stream\": \"category\", \"schema\": {\"type\": \"object\"}, \"key_properties\": [\"id\"]}",
+        "{\"type\": \"RECORD\", \"stream\": \"category\", \"record\": {\"id\": 1}}",
+        "{\"type\": \"SCHEMA\", \"stream\": \"region\", \"schema\": {\"type\": \"object\"}, \"key_properties\": [\"id\"]}",
+        "{\"type\": \"RECORD\", \"stream\": \"region\", \"record\": {\"id\": 1}}",
+        "{\"type\": \"STATE\", \"value\": {\"currently_syncing\": \"region\"}}",
+        "{\"type\": \"SCHEMA\", \"stream\": \"territory\", \"schema\": {\"type\": \"object\"}, \"key_properties\": [\"id\"]}",
+        "{\"type\": \"RECORD\", \"stream\": \"territory\", \"record\": {\"id\": 1}}",
+        "{\"type\": \"RECORD\", \"stream\": \"category\", \"record\": {\"id\": 2}}",
+        "{\"type\": \"RECORD\", \"stream\": \"region\", \"record\": {\"id\": 2}}",
+        "{\"type\": \"RECORD\", \"stream\": \"category\", \"record\": {\"id\": 3}}"
+    );
+
+    @Test
+    void split(@TempDir Path directory) throws IOException {
+        for (Compression compression : Compression.values()) {
+            // fewer open files than streams, so that the files are closed and appended to
+            Map<String, File> files;
+            try (StreamSplitter streamSplitter = new StreamSplitter(directory, compression, 2)) {
+                for (String line : LINES) {
+                    streamSplitter.accept(MessageService.parse(line), line);
+                }
+
+                files = streamSplitter.files();
+            }
+
+            assertThat(files.keySet(), contains("category", "region", "territory"));
+            assertThat(files.get("category").getName(), endsWith(CompressionService.extension(compression)));
+
+            assertThat(this.read(files.get("category")), contains(LINES.get(0), LINES.get(1), LINES.get(7), LINES.get(9)));
+            assertThat(this.read(files.get("region")), contains(LINES.get(2), LINES.get(3), LINES.get(8)));
+            assertThat(this.read(files.get("territory")), contains(LINES.get(5), LINES.get(6)));
+        }
+    }
+
+    @Test
+    void ignored(@TempDir Path directory) throws IOException {
+        try (StreamSplitter streamSplitter = new StreamSplitter(directory, Compression.NONE)) {
+            streamSplitter.accept(Message.builder().type(Message.Type.STATE).stream("category").build(), "{}");
+            streamSplitter.accept(Message.builder().type(Message.Type.RECORD).build(), "{}");
+
+            assertThat(streamSplitter.files().isEmpty(), is(true));
+        }
+    }
+
+    private List<String> read(File file) throws IOException {
+        try (InputStream inputStream = CompressionService.decompress(new FileInputStream(file))) {
+            return IOUtils.readLines(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+}
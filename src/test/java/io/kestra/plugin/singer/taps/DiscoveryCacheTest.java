@@ -0,0 +1,140 @@
+package io.kestra.plugin.singer.taps;
+
+import com.google.common.collect.ImmutableMap;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.IdUtils;
+import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.singer.models.DiscoverMetadata;
+import io.kestra.plugin.singer.models.StreamsConfiguration;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class DiscoveryCacheTest extends TapsTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void hit() throws Exception {
+        PipelinewisePostgres task = this.task(Duration.ofHours(1), false, null);
+
+        // every test method has its own flow, and so its own cache
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(0D));
+
+        task = this.task(Duration.ofHours(1), false, null);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(0D));
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(1D));
+    }
+
+    @Test
+    void expired() throws Exception {
+        PipelinewisePostgres task = this.task(Duration.ofSeconds(1), false, null);
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+
+        Thread.sleep(1500);
+
+        task = this.task(Duration.ofSeconds(1), false, null);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(0D));
+    }
+
+    @Test
+    void refresh() throws Exception {
+        PipelinewisePostgres task = this.task(Duration.ofHours(1), false, null);
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+
+        task = this.task(Duration.ofHours(1), true, null);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(0D));
+
+        // the catalog discovered again is cached
+        task = this.task(Duration.ofHours(1), false, null);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(1D));
+    }
+
+    @Test
+    void tooLarge() throws Exception {
+        PipelinewisePostgres task = this.task(Duration.ofHours(1), false, null);
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+
+        // a catalog over the limit is not cached, and the previous one is not reused
+        task = this.task(Duration.ofHours(1), true, 1L);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+
+        task = this.task(Duration.ofHours(1), false, null);
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        this.run(task, runContext);
+        assertThat(this.counter(runContext, "discovery.cache.miss"), is(1D));
+        assertThat(this.counter(runContext, "discovery.cache.hit"), is(0D));
+    }
+
+    private void run(PipelinewisePostgres task, RunContext runContext) throws Exception {
+        PipelinewisePostgres.Output output = task.run(runContext);
+
+        Map<StreamType, List<Map<String, Object>>> groupedByType = groupedByType(runContext, output.getRaw());
+        assertThat(groupedByType.get(StreamType.RECORD).size(), is(8));
+    }
+
+    private PipelinewisePostgres task(Duration ttl, boolean refresh, Long maxSize) {
+        PipelinewisePostgres.PipelinewisePostgresBuilder<?, ?> builder = PipelinewisePostgres.builder()
+            .id(IdUtils.create())
+            .type(PipelinewisePostgres.class.getName())
+            .host("172.17.0.1")
+            .username("postgres")
+            .password(Property.ofValue("pg_passwd"))
+            .port(Property.ofValue(65432))
+            .dbName(Property.ofValue("postgres"))
+            .stateName(Property.ofValue(IdUtils.create()))
+            .discoveryCacheTtl(Property.ofValue(ttl))
+            .discoveryRefresh(Property.ofValue(refresh))
+            .streamsConfigurations(List.of(
+                StreamsConfiguration.builder()
+                    .stream("category")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.FULL_TABLE)
+                    .build()
+            ));
+
+        if (maxSize != null) {
+            builder.discoveryCacheMaxSize(Property.ofValue(maxSize));
+        }
+
+        return builder.build();
+    }
+
+    private double counter(RunContext runContext, String name) {
+        return runContext.metrics().stream()
+            .filter(metric -> metric.getName().equals(name))
+            .mapToDouble(metric -> (Double) metric.getValue())
+            .sum();
+    }
+}
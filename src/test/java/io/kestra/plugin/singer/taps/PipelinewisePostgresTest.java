@@ -67,4 +67,46 @@ class PipelinewisePostgresTest extends TapsTest {
         groupedByType = groupedByType(runContext, builder.build().run(runContext).getRaw());
         assertThat(groupedByType.get(StreamType.RECORD).size(), is(1));
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void streaming() throws Exception {
+        PipelinewisePostgres task = PipelinewisePostgres.builder()
+            .id(IdUtils.create())
+            .type(PipelinewisePostgres.class.getName())
+            .host("172.17.0.1")
+            .username("postgres")
+            .password(Property.ofValue("pg_passwd"))
+            .port(Property.ofValue(65432))
+            .dbName(Property.ofValue("postgres"))
+            .stateName(Property.ofValue(IdUtils.create()))
+            .streaming(Property.ofValue(true))
+            .streamsConfigurations(Arrays.asList(
+                StreamsConfiguration.builder()
+                    .stream("category")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.INCREMENTAL)
+                    .replicationKeys("categoryid")
+                    .build(),
+                StreamsConfiguration.builder()
+                    .selected(false)
+                    .propertiesPattern(Collections.singletonList("description"))
+                    .build()
+            ))
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        PipelinewisePostgres.Output output = task.run(runContext);
+
+        // the messages consumed while the tap runs are the same as in file mode
+        Map<StreamType, List<Map<String, Object>>> groupedByType = groupedByType(runContext, output.getRaw());
+
+        assertThat(groupedByType.get(StreamType.SCHEMA).size(), is(1));
+        assertThat(groupedByType.get(StreamType.SCHEMA).get(0).get("stream"), is("public-category"));
+
+        assertThat(groupedByType.get(StreamType.RECORD).size(), is(8));
+        Map<String, Object> firstRecord = (Map<String, Object>) groupedByType.get(StreamType.RECORD).get(0).get("record");
+        assertThat(firstRecord.size(), is(3));
+
+        assertThat(groupedByType.get(StreamType.STATE).size(), is(2));
+    }
 }
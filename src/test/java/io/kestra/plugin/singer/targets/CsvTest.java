@@ -6,6 +6,7 @@ import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
 import io.kestra.core.utils.IdUtils;
 import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.singer.models.Compression;
 import io.kestra.plugin.singer.models.DiscoverMetadata;
 import io.kestra.plugin.singer.models.StreamsConfiguration;
 import io.kestra.plugin.singer.taps.AbstractPythonTap;
@@ -76,4 +77,51 @@ class CsvTest {
 
         assertThat(output.getStateKey(), not((nullValue())));
     }
+
+    @Test
+    void compressed() throws Exception {
+        String stateName = IdUtils.create();
+
+        PipelinewiseMysql tap = PipelinewiseMysql.builder()
+            .id(IdUtils.create())
+            .type(PipelinewiseMysql.class.getName())
+            .host("172.17.0.1")
+            .username("root")
+            .password(Property.ofValue("mysql_passwd"))
+            .port(Property.ofValue(63306))
+            .stateName(Property.ofValue(stateName))
+            .compression(Property.ofValue(Compression.GZIP))
+            .streamsConfigurations(Arrays.asList(
+                StreamsConfiguration.builder()
+                    .stream("Category")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.INCREMENTAL)
+                    .replicationKeys("categoryId")
+                    .build(),
+                StreamsConfiguration.builder()
+                    .stream("Region")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.FULL_TABLE)
+                    .build()
+            ))
+            .build();
+
+        RunContext runContextTap = TestsUtils.mockRunContext(runContextFactory, tap, ImmutableMap.of());
+        AbstractPythonTap.Output tapOutput = tap.run(runContextTap);
+
+        assertThat(tapOutput.getRaw().toString(), endsWith(".json.gz"));
+
+        // the gzip raw output is detected and decompressed by the target
+        Csv target = Csv.builder()
+            .id(IdUtils.create())
+            .type(Csv.class.getName())
+            .from(Property.ofValue(tapOutput.getRaw().toString()))
+            .stateName(Property.ofValue(stateName))
+            .delimiter(";")
+            .build();
+
+        RunContext runContextTarget = TestsUtils.mockRunContext(runContextFactory, target, ImmutableMap.of());
+        Csv.Output output = target.run(runContextTarget);
+
+        assertThat(output.getUris().keySet(), containsInAnyOrder("Northwind-Region", "Northwind-Category"));
+        assertThat(output.getStateKey(), not((nullValue())));
+    }
 }
\ No newline at end of file
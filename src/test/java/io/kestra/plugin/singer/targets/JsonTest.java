@@ -77,4 +77,50 @@ class JsonTest {
 
         assertThat(output.getStateKey(), not((nullValue())));
     }
+
+    @Test
+    void streaming() throws Exception {
+        String stateName = IdUtils.create();
+
+        PipelinewiseMysql tap = PipelinewiseMysql.builder()
+            .id(IdUtils.create())
+            .type(PipelinewiseMysql.class.getName())
+            .host("172.17.0.1")
+            .username("root")
+            .password(Property.ofValue("mysql_passwd"))
+            .port(Property.ofValue(63306))
+            .stateName(Property.ofValue(stateName))
+            .streamsConfigurations(Arrays.asList(
+                StreamsConfiguration.builder()
+                    .stream("Category")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.INCREMENTAL)
+                    .replicationKeys("categoryId")
+                    .build(),
+                StreamsConfiguration.builder()
+                    .stream("Region")
+                    .replicationMethod(DiscoverMetadata.ReplicationMethod.FULL_TABLE)
+                    .build()
+            ))
+            .build();
+
+        RunContext runContext = TestsUtils.mockRunContext(runContextFactory, tap, ImmutableMap.of());
+        AbstractPythonTap.Output tapOutput = tap.run(runContext);
+
+        Json task = Json
+            .builder()
+            .id(IdUtils.create())
+            .type(Json.class.getName())
+            .from(Property.ofValue(tapOutput.getRaw().toString()))
+            .stateName(Property.ofValue(stateName))
+            .streaming(Property.ofValue(true))
+            .build();
+
+        runContext = TestsUtils.mockRunContext(runContextFactory, task, ImmutableMap.of());
+        Json.Output output = task.run(runContext);
+
+        // the target reads the named pipe, and it is removed once the target has ended
+        assertThat(output.getUris().keySet(), containsInAnyOrder("Northwind-Region", "Northwind-Category"));
+        assertThat(output.getStateKey(), not((nullValue())));
+        assertThat(runContext.workingDir().path().resolve("input.jsonl").toFile().exists(), is(false));
+    }
 }